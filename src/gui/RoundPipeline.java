@@ -0,0 +1,89 @@
+package gui;
+
+import javafx.application.Platform;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Moves the work done between rounds off the JavaFX application thread.
+ * Model updates and the building of the next pane run in order on a
+ * single background thread, and the finished scenes are handed back to
+ * the application thread in batches, with one Platform.runLater per burst
+ * of updates.
+ *
+ * Once the first task is prepared, the model and the GUI state the panes
+ * are built from (theme colors and the like) are only changed on the
+ * background thread. The application thread reads them only while setting
+ * up, before that first task: the GUI constructor restores the checkpoint
+ * and start draws the first start pane. Panes carry whatever they need
+ * from the model later on, such as the time allowed for a round, rather
+ * than reading it on the application thread when clicked.
+ *
+ * @author Uzo Ukekwe
+ */
+class RoundPipeline {
+    /** Thread that updates the model and prepares panes */
+    private final ExecutorService worker;
+
+    /** UI changes waiting to be applied on the application thread */
+    private final Queue<Runnable> pending;
+
+    /** True while a batch is waiting to run on the application thread */
+    private final AtomicBoolean scheduled;
+
+    /**
+     * Construct a RoundPipeline.
+     */
+    RoundPipeline() {
+        this.worker = Executors.newSingleThreadExecutor(task -> {
+            Thread thread = new Thread(task, "round-prep");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.pending = new ConcurrentLinkedQueue<>();
+        this.scheduled = new AtomicBoolean(false);
+    }
+
+    /**
+     * Run model work, and whatever it triggers, on the background thread
+     * @param task work to run
+     */
+    void prepare(Runnable task) {
+        this.worker.execute(task);
+    }
+
+    /**
+     * Apply a change to the UI on the application thread, together with
+     * any other changes posted before it gets to run
+     * @param change change to apply
+     */
+    void show(Runnable change) {
+        this.pending.add(change);
+        if (this.scheduled.compareAndSet(false, true)) {
+            Platform.runLater(this::applyPending);
+        }
+    }
+
+    /**
+     * Apply every pending UI change, in the order they were posted
+     */
+    private void applyPending() {
+        this.scheduled.set(false);
+        Runnable change = this.pending.poll();
+        while (change != null) {
+            change.run();
+            change = this.pending.poll();
+        }
+    }
+
+    /**
+     * Stop the background thread
+     */
+    void shutdown() {
+        this.worker.shutdownNow();
+    }
+}
@@ -4,6 +4,7 @@ import javafx.animation.KeyFrame;
 import javafx.animation.KeyValue;
 import javafx.animation.Timeline;
 import javafx.application.Application;
+import javafx.application.Platform;
 import javafx.beans.property.IntegerProperty;
 import javafx.beans.property.SimpleIntegerProperty;
 import javafx.geometry.Insets;
@@ -23,12 +24,26 @@ import javafx.scene.paint.Paint;
 import javafx.scene.text.Font;
 import javafx.scene.text.Text;
 import javafx.scene.text.TextAlignment;
+import javafx.stage.FileChooser;
 import javafx.stage.Stage;
 import javafx.util.Duration;
+import model.AnswerModerator;
+import model.GameMode;
 import model.Observer;
+import model.PlaylistExporter;
+import model.SessionCheckpoint;
 import model.SongAssociationModel;
-
+import model.SongLinks;
+import model.SongSuggestions;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * The SongAssociationGUI application is the UI for Song Association
@@ -44,13 +59,17 @@ public class SongAssociationGUI extends Application
                                                                 "#000000"
                                                         ));
 
-    /** Font used for fancier text */
-    private final static Font MAIN_FONT = Font.loadFont(SongAssociationGUI.class.
-            getResourceAsStream("resources/EDITION_.TTF"), 45);
+    /** Font used for fancier text, loaded in the background as soon as the class is */
+    private final static CompletableFuture<Font> MAIN_FONT = loadFont("resources/EDITION_.TTF");
+
+    /** Font used for plainer text, loaded alongside the main font */
+    private final static CompletableFuture<Font> PLAIN_FONT = loadFont("resources/MilfordCondensedBold-ldjw.ttf");
 
-    /** Font used for plainer text */
-    private final static Font PLAIN_FONT = Font.loadFont(SongAssociationGUI.class.
-            getResourceAsStream("resources/MilfordCondensedBold-ldjw.ttf"), 45);
+    /** Icon of the YouTube links in the mix (null until first needed) */
+    private static Image youtubeIcon;
+
+    /** Icon of the Spotify links in the mix (null until first needed) */
+    private static Image spotifyIcon;
 
     /** Styling values */
     private final static int LARGE_FONT_SIZE = 200;
@@ -61,42 +80,97 @@ public class SongAssociationGUI extends Application
     private final static int BUTTON_INSETS = 5;
     private final static int SPACING = 10;
 
-    /** Number of seconds user has to think of a song each round */
-    private final static int TIME_PER_WORD = 10;
+    /** File the game in progress is saved to after every round */
+    private final static String CHECKPOINT_FILE = "data/session.ckpt";
+
+    /** Optional index of songs featuring each word, built by SongSuggestions */
+    private final static String SUGGESTIONS_FILE = "data/suggestions.idx";
 
-    /** Number of seconds user has left to think of a song in current round */
-    private IntegerProperty timeLeft = new SimpleIntegerProperty(TIME_PER_WORD);
+    /** File the answers of every finished game are added to, one per line */
+    private final static String HISTORY_FILE = "data/history.txt";
+
+    /** Optional file of terms which keep an answer out of the mix, one per line */
+    private final static String BLOCKLIST_FILE = "data/blocklist.txt";
+
+    /** Program argument which prints how long each phase of startup took */
+    private final static String STARTUP_REPORT_ARG = "--startup-report";
+
+    /** Game modes the user can pick from, in the order they are cycled */
+    private final static List<GameMode> GAME_MODES = List.of(GameMode.CLASSIC,
+                                                             GameMode.BLITZ,
+                                                             GameMode.ENDLESS);
 
     /** The model for the view and the controller */
     private final SongAssociationModel model;
 
+    /** Checkpoint the model saves to (null if it could not be opened) */
+    private SessionCheckpoint checkpoint;
+
+    /** Songs the user could have sung for each word (empty if there is no index) */
+    private final CompletableFuture<Optional<SongSuggestions>> suggestions;
+
+    /** Screens answers against the blocklist */
+    private final AnswerModerator moderator = new AnswerModerator();
+
+    /** Last modification time of the blocklist that was loaded successfully (null if none) */
+    private FileTime blocklistLoaded;
+
+    /** Runs model updates and builds the next pane off the application thread */
+    private final RoundPipeline pipeline = new RoundPipeline();
+
+    /** Countdown of the most recently built gameplay pane, started once shown */
+    private Timeline roundTimer;
+
+    /** True from a click that changes the scene until the new scene is shown */
+    private boolean awaitingScene;
+
     /** Stage where the game's scenes are presented */
     private final Stage stage = new Stage();
 
-    /** Main color used in view, depending on light/dark mode */
+    /** Main color used in view, depending on light/dark mode (changed on the background thread) */
     private String mainColor;
 
-    /** Accent color used to complement main color, depending on mode */
+    /** Accent color used to complement main color, depending on mode (changed on the background thread) */
     private String accentColor;
 
-    /** Text on light/dark mode button */
+    /** Text on light/dark mode button (changed on the background thread) */
     private String modeButtonText;
 
     /** Number of times the next button has been clicked in one scene */
     private int nextButtonClicks;
 
-    /** Number of times the quit button has been clicked in one scene */
-    private int quitButtonClicks;
-
     /**
      * Construct the GUI
      */
     public SongAssociationGUI() {
-        this.model = new SongAssociationModel();
+        // the words are only needed once the user presses start
+        this.model = new SongAssociationModel(CompletableFuture.supplyAsync(
+                () -> StartupReport.time("corpus", SongAssociationModel::generateWords)));
         this.mainColor = THEME_COLORS.get(0);
         this.accentColor = THEME_COLORS.get(1);
         this.modeButtonText = "DARK MODE";
 
+        this.model.setModerator(this.moderator);
+        this.reloadBlocklist();
+        this.suggestions = CompletableFuture.supplyAsync(
+                () -> StartupReport.time("suggestions", SongAssociationGUI::openSuggestions))
+                .exceptionally(error -> {
+                    // the game goes on without suggestions rather than stalling a round
+                    System.err.println(error.getMessage());
+                    return Optional.empty();
+                });
+
+        // resume a game interrupted during a previous run, if any
+        StartupReport.time("checkpoint", () -> {
+            try {
+                this.checkpoint = new SessionCheckpoint(Path.of(CHECKPOINT_FILE));
+                this.model.useCheckpoint(this.checkpoint);
+            } catch (IOException ioe) {
+                System.err.println(ioe.getMessage());
+            }
+            return this.checkpoint;
+        });
+
         init();
     }
 
@@ -109,21 +183,118 @@ public class SongAssociationGUI extends Application
     }
 
     /**
-     * Switch between light and dark mode
+     * Start loading one of the game's fonts on a background thread
+     * @param resource path of the font file, relative to this class
+     * @return completes with the loaded font
      */
-    private void switchMode() {
-        if (this.modeButtonText.equals("DARK MODE")) {
-            this.modeButtonText = "LIGHT MODE";
-            this.mainColor = THEME_COLORS.get(1);
-            this.accentColor = THEME_COLORS.get(0);
+    private static CompletableFuture<Font> loadFont(String resource) {
+        return CompletableFuture.supplyAsync(() -> StartupReport.time(resource, () ->
+                Font.loadFont(SongAssociationGUI.class.getResourceAsStream(resource), 45)));
+    }
+
+    /**
+     * Get one of the game's fonts. Panes built in the background wait for
+     * it if it is still loading; the application thread never waits and
+     * uses the default font until it is ready.
+     * @param font the font being loaded
+     * @return the font, or the default font if it isn't ready yet
+     */
+    private static Font font(CompletableFuture<Font> font) {
+        return Platform.isFxApplicationThread() ? font.getNow(Font.getDefault()) : font.join();
+    }
+
+    /**
+     * Get the font used for fancier text; see font
+     * @return the main font
+     */
+    private static Font mainFont() {
+        return font(MAIN_FONT);
+    }
+
+    /**
+     * Get the font used for plainer text; see font
+     * @return the plain font
+     */
+    private static Font plainFont() {
+        return font(PLAIN_FONT);
+    }
+
+    /**
+     * Open the song suggestions index, if there is one
+     * @return the index, or nothing if it is missing or unreadable
+     */
+    private static Optional<SongSuggestions> openSuggestions() {
+        Path index = Path.of(SUGGESTIONS_FILE);
+        if (!Files.exists(index)) {
+            return Optional.empty();
         }
-        else {
-            this.modeButtonText = "DARK MODE";
-            this.mainColor = THEME_COLORS.get(0);
-            this.accentColor = THEME_COLORS.get(1);
+        try {
+            return Optional.of(new SongSuggestions(index));
+        } catch (IOException ioe) {
+            System.err.println(ioe.getMessage());
+            return Optional.empty();
         }
-        Scene start = new Scene(makeStartPane());
-        this.stage.setScene(start);
+    }
+
+    /**
+     * Load the blocklist again in the background if it changed since it was
+     * last loaded; answers are screened by the previous one until then, and
+     * a load that fails is tried again next time
+     */
+    private void reloadBlocklist() {
+        Path blocklist = Path.of(BLOCKLIST_FILE);
+        try {
+            if (!Files.exists(blocklist)) {
+                return;
+            }
+            FileTime modified = Files.getLastModifiedTime(blocklist);
+            if (!modified.equals(this.blocklistLoaded)) {
+                this.moderator.reload(blocklist).whenComplete((filter, error) ->
+                        this.pipeline.show(() -> {
+                            if (error != null) {
+                                System.err.println(error.getMessage());
+                            }
+                            else {
+                                this.blocklistLoaded = modified;
+                            }
+                        }));
+            }
+        } catch (IOException ioe) {
+            System.err.println(ioe.getMessage());
+        }
+    }
+
+    /**
+     * Switch between light and dark mode. The colors are changed on the
+     * background thread, between the panes it builds.
+     */
+    private void switchMode() {
+        this.submit(() -> {
+            if (this.modeButtonText.equals("DARK MODE")) {
+                this.modeButtonText = "LIGHT MODE";
+                this.mainColor = THEME_COLORS.get(1);
+                this.accentColor = THEME_COLORS.get(0);
+            }
+            else {
+                this.modeButtonText = "DARK MODE";
+                this.mainColor = THEME_COLORS.get(0);
+                this.accentColor = THEME_COLORS.get(1);
+            }
+            this.showScene(makeStartPane());
+        });
+    }
+
+    /**
+     * Switch to the next game mode, abandoning any unfinished game
+     */
+    private void switchGameMode() {
+        this.submit(() -> {
+            GameMode current = this.model.getMode();
+            GameMode next = GAME_MODES.get((GAME_MODES.indexOf(current) + 1) % GAME_MODES.size());
+            this.model.setMode(next);
+            this.model.reset();
+            this.showScene(makeStartPane());
+        });
     }
 
     /**
@@ -156,7 +327,7 @@ public class SongAssociationGUI extends Application
         button.setStyle("-fx-background-color: " + bgColor + ";" +
                 "-fx-font-size: " + textSize + ";" +
                 "-fx-text-fill: " + textColor + ";" +
-                "-fx-font-family: " + PLAIN_FONT.getFamily() + ";" +
+                "-fx-font-family: " + plainFont().getFamily() + ";" +
                 "-fx-font-weight: bold;" +
                 "-fx-background-radius: 0;" +
                 "-fx-padding: " + BUTTON_PADDING + "px;" +
@@ -174,22 +345,25 @@ public class SongAssociationGUI extends Application
 
         //title
         Text helpTitle = new Text("HOW TO PLAY:\n");
-        this.styleText(helpTitle, MAIN_FONT, MEDIUM_FONT_SIZE, false, this.accentColor);
+        this.styleText(helpTitle, mainFont(), MEDIUM_FONT_SIZE, false, this.accentColor);
         helpNode.setTop(helpTitle);
         BorderPane.setAlignment(helpTitle, Pos.BOTTOM_CENTER);
 
         //body
-        Text helpBody = new Text("· THERE ARE " + SongAssociationModel.ROUNDS_PER_GAME +
-                                    " ROUNDS PER GAME\n" +
+        GameMode mode = this.model.getMode();
+        String gameLength = mode.getRoundsPerGame() > 0 ?
+                "· THERE ARE " + mode.getRoundsPerGame() + " ROUNDS PER GAME\n" :
+                "· ROUNDS CONTINUE UNTIL YOU QUIT\n";
+        Text helpBody = new Text(gameLength +
                                     "· EACH ROUND, YOU ARE GIVEN ONE WORD\n" +
-                                    "· YOU HAVE "  + TIME_PER_WORD + " SECONDS TO RECALL A SONG\n" +
+                                    "· YOU HAVE "  + mode.getTimePerWord() + " SECONDS TO RECALL A SONG\n" +
                                     "   WITH THAT WORD IN ITS LYRICS\n" +
                                     "· TO SCORE A POINT, SING THE LYRIC ON\n" +
                                     "   TIME, THEN IDENTIFY THE SONG\n" +
                                     "· IF YOU CAN'T REMEMBER BOTH THE\n" +
                                     "   ARTIST AND TITLE, YOU MUST FORFEIT\n" +
                                     "   THE POINT");
-        this.styleText(helpBody, PLAIN_FONT, SMALL_FONT_SIZE, true, this.accentColor);
+        this.styleText(helpBody, plainFont(), SMALL_FONT_SIZE, true, this.accentColor);
         helpNode.setCenter(helpBody);
         BorderPane.setAlignment(helpBody, Pos.BASELINE_CENTER);
 
@@ -197,7 +371,7 @@ public class SongAssociationGUI extends Application
         Button backButton = new Button("BACK");
         this.styleButton(backButton, this.accentColor,
                          MICRO_FONT_SIZE, this.mainColor);
-        backButton.setOnAction(event -> this.stage.setScene(new Scene(makeStartPane())));
+        backButton.setOnAction(event -> this.submit(() -> this.showScene(makeStartPane())));
         helpNode.setBottom(backButton);
         BorderPane.setAlignment(backButton, Pos.BOTTOM_LEFT);
 
@@ -208,8 +382,7 @@ public class SongAssociationGUI extends Application
      * Display the help pane
      */
     private void showHelp() {
-        Scene help = new Scene(makeHelpPane());
-        this.stage.setScene(help);
+        this.submit(() -> this.showScene(makeHelpPane()));
     }
 
     /**
@@ -222,17 +395,17 @@ public class SongAssociationGUI extends Application
 
         // title
         Text startTitle = new Text("SONG\n ASSOC\nIATION\n ");
-        this.styleText(startTitle, MAIN_FONT, MEDIUM_FONT_SIZE, false, this.accentColor);
+        this.styleText(startTitle, mainFont(), MEDIUM_FONT_SIZE, false, this.accentColor);
         startNode.setTop(startTitle);
         BorderPane.setAlignment(startTitle, Pos.BOTTOM_CENTER);
 
-        // start button
-        Button startButton = new Button("START");
+        // start button (resumes an interrupted game if there is one)
+        Button startButton = new Button(this.model.getCurrentRound() > 1 ? "RESUME" : "START");
         this.styleButton(startButton, this.accentColor,
                          SMALL_FONT_SIZE, this.mainColor);
         startNode.setCenter(startButton);
         BorderPane.setAlignment(startButton, Pos.BASELINE_CENTER);
-        startButton.setOnAction(event -> this.model.startRound());
+        startButton.setOnAction(event -> this.submit(this.model::startRound));
 
         // help button
         Button helpButton = new Button("HELP");
@@ -246,10 +419,17 @@ public class SongAssociationGUI extends Application
                          MICRO_FONT_SIZE, this.mainColor);
         modeButton.setOnAction(event -> this.switchMode());
 
+        // game mode button
+        Button gameModeButton = new Button(this.model.getMode().getName());
+        this.styleButton(gameModeButton, this.accentColor,
+                         MICRO_FONT_SIZE, this.mainColor);
+        gameModeButton.setOnAction(event -> this.switchGameMode());
+
         //bottom menu
         FlowPane bottomMenu = new FlowPane();
         bottomMenu.getChildren().add(helpButton);
         bottomMenu.getChildren().add(modeButton);
+        bottomMenu.getChildren().add(gameModeButton);
         startNode.setBottom(bottomMenu);
         
         return startNode;
@@ -262,22 +442,63 @@ public class SongAssociationGUI extends Application
     @Override
     public void start(Stage stage) {
         stage = this.stage;
-        Scene start = new Scene(makeStartPane());
+        boolean fontsLoaded = MAIN_FONT.isDone() && PLAIN_FONT.isDone();
+        Scene start = StartupReport.time("start pane", () -> new Scene(makeStartPane()));
+
+        // the start pane was drawn with the default font, so draw it again once
+        // the game's fonts are ready (unless the user has already moved on)
+        if (!fontsLoaded) {
+            CompletableFuture.allOf(MAIN_FONT, PLAIN_FONT).thenRun(() -> this.pipeline.prepare(() -> {
+                BorderPane redrawn = makeStartPane();
+                this.pipeline.show(() -> {
+                    if (this.stage.getScene() == start) {
+                        this.stage.setScene(new Scene(redrawn));
+                    }
+                });
+            }));
+        }
 
         // stage setup
         stage.setTitle("Song Association");
         stage.setScene(start);
         stage.sizeToScene();
         stage.show();
+
+        // the first frame is drawn on the pulse after the stage is shown
+        if (getParameters().getRaw().contains(STARTUP_REPORT_ARG)) {
+            Platform.runLater(() -> {
+                StartupReport.mark("first frame");
+                this.model.whenWordsLoaded(StartupReport::print);
+            });
+        }
+    }
+
+    /**
+     * Release the background thread and checkpoint file when the application closes
+     */
+    @Override
+    public void stop() {
+        this.pipeline.shutdown();
+        if (this.checkpoint != null) {
+            try {
+                this.checkpoint.close();
+            } catch (IOException ioe) {
+                System.err.println(ioe.getMessage());
+            }
+        }
     }
 
     /**
      * Stop the timer during a round of gameplay
      * @param timeline timeline used for the countdown
+     * @param timeLeft seconds left on the countdown
      * @param gameplayNode main node where user does song association
      * @param userWarning message explaining circumstances to user
+     * @param currentWord word which must be found in a song's lyrics
+     * @param timePerWord seconds the round allowed for the word
      */
-    private void stopTime(Timeline timeline, BorderPane gameplayNode, Label userWarning) {
+    private void stopTime(Timeline timeline, IntegerProperty timeLeft, BorderPane gameplayNode,
+                          Label userWarning, String currentWord, int timePerWord) {
         // stop the timer if the stop button was pressed in time
         if (timeline != null) {
             timeline.stop();
@@ -290,11 +511,27 @@ public class SongAssociationGUI extends Application
                              SMALL_FONT_SIZE, this.mainColor);
 
             this.nextButtonClicks = 1;
-            nextButton.setOnAction(event -> this.nextRound("","", null, TIME_PER_WORD));
-            gameplayNode.setCenter(nextButton);
+            nextButton.setOnAction(event -> this.nextRound("","", null, timePerWord));
+
+            // songs the user could have sung, if the index has loaded by now
+            VBox tooLateBox = new VBox(SPACING, nextButton);
+            List<String> missed = this.suggestions.getNow(Optional.empty())
+                    .map(index -> index.suggestionsFor(currentWord))
+                    .orElse(List.of());
+            if (!missed.isEmpty()) {
+                Text missedSongs = new Text("YOU COULD HAVE SUNG:\n" + String.join("\n", missed));
+                this.styleText(missedSongs, plainFont(), MICRO_FONT_SIZE, true, this.accentColor);
+                missedSongs.setTextAlignment(TextAlignment.CENTER);
+                tooLateBox.getChildren().add(missedSongs);
+            }
+            tooLateBox.setAlignment(Pos.TOP_CENTER);
+            gameplayNode.setCenter(tooLateBox);
         }
         // stop button was pressed in time and user must enter more info
-        else { this.promptAnswer(gameplayNode, userWarning); }
+        else {
+            int answerTime = timePerWord - timeLeft.getValue();
+            this.promptAnswer(gameplayNode, userWarning, answerTime);
+        }
     }
 
     /**
@@ -302,15 +539,19 @@ public class SongAssociationGUI extends Application
      * @param gameplayNode  main node where user does song association
      * @param timingBox VBox containing the timing nodes
      * @param userWarning message explaining circumstances to user
+     * @param currentWord word which must be found in a song's lyrics
      */
-    private void makeTimingNodes(BorderPane gameplayNode, VBox timingBox, Label userWarning) {
+    private void makeTimingNodes(BorderPane gameplayNode, VBox timingBox, Label userWarning,
+                                 String currentWord) {
         // timer created
         Label timerLabel = new Label();
-        this.timeLeft = new SimpleIntegerProperty(TIME_PER_WORD);
+        int timePerWord = this.model.getMode().getTimePerWord();
+        // each pane counts down on its own, as the next one is built while this one is shown
+        IntegerProperty timeLeft = new SimpleIntegerProperty(timePerWord);
         timerLabel.textProperty().bind(timeLeft.asString());
         timerLabel.setTextFill(Paint.valueOf(this.accentColor));
         timerLabel.setStyle("-fx-font-size: " + MEDIUM_FONT_SIZE + ";" +
-                            "-fx-font-family: " + PLAIN_FONT.getFamily() + ";" +
+                            "-fx-font-family: " + plainFont().getFamily() + ";" +
                             "-fx-font-weight: bold;");
         timingBox.getChildren().add(timerLabel);
 
@@ -322,10 +563,12 @@ public class SongAssociationGUI extends Application
 
         // timer functionality
         Timeline timeline = new Timeline();
-        stopButton.setOnAction(event -> this.stopTime(timeline, gameplayNode, userWarning));
-        timeLeft.set(TIME_PER_WORD);
-        timeline.getKeyFrames().add(new KeyFrame(Duration.seconds(TIME_PER_WORD+1), new KeyValue(timeLeft, 0)));
-        timeline.playFromStart();
+        stopButton.setOnAction(event -> this.stopTime(timeline, timeLeft, gameplayNode,
+                                                      userWarning, currentWord, timePerWord));
+        timeLeft.set(timePerWord);
+        timeline.getKeyFrames().add(new KeyFrame(Duration.seconds(timePerWord+1), new KeyValue(timeLeft, 0)));
+        // started once the pane is on screen, as it may be built in the background
+        this.roundTimer = timeline;
         gameplayNode.setCenter(timingBox);
     }
 
@@ -338,7 +581,7 @@ public class SongAssociationGUI extends Application
     private Label makeNotifNodes(BorderPane gameplayNode, HBox notifBox) {
         // current round
         Text currentRound = new Text("[ROUND " + this.model.getCurrentRound() + "] ");
-        this.styleText(currentRound, PLAIN_FONT, MICRO_FONT_SIZE, false, this.accentColor);
+        this.styleText(currentRound, plainFont(), MICRO_FONT_SIZE, false, this.accentColor);
         currentRound.setTextAlignment(TextAlignment.CENTER);
         notifBox.getChildren().add(currentRound);
 
@@ -349,8 +592,13 @@ public class SongAssociationGUI extends Application
         notifBox.getChildren().add(userWarning);
 
         // current score
-        Text currentScore = new Text(" [SCORE: " + this.model.getCurrentScore() + "/15]");
-        this.styleText(currentScore, PLAIN_FONT, MICRO_FONT_SIZE, false, this.accentColor);
+        int roundsPerGame = this.model.getMode().getRoundsPerGame();
+        Text currentScore = new Text(roundsPerGame > 0 ?
+                " [SCORE: " + this.model.getCurrentScore() + "/" + roundsPerGame + "]" :
+                " [SCORE: " + this.model.getCurrentScore() + "] [LAST " +
+                SongAssociationModel.RECENT_ROUNDS + ": " + this.model.getRecentScore() +
+                " PTS, " + this.model.getRecentAverageTime() + " S AVG]");
+        this.styleText(currentScore, plainFont(), MICRO_FONT_SIZE, false, this.accentColor);
         currentScore.setTextAlignment(TextAlignment.CENTER);
         notifBox.getChildren().add(currentScore);
         notifBox.setAlignment(Pos.BOTTOM_CENTER);
@@ -372,11 +620,11 @@ public class SongAssociationGUI extends Application
         VBox wordDisplay = new VBox();
         // word header
         Text wordHeader = new Text("WORD:");
-        this.styleText(wordHeader, PLAIN_FONT, SMALL_FONT_SIZE, true, this.accentColor);
+        this.styleText(wordHeader, plainFont(), SMALL_FONT_SIZE, true, this.accentColor);
         wordDisplay.getChildren().add(wordHeader);
         // given word
         Text givenWord = new Text(currentWord.toUpperCase(Locale.ROOT));
-        this.styleText(givenWord, MAIN_FONT, LARGE_FONT_SIZE, false, this.accentColor);
+        this.styleText(givenWord, mainFont(), LARGE_FONT_SIZE, false, this.accentColor);
         givenWord.setUnderline(true);
         wordDisplay.getChildren().add(givenWord);
         wordDisplay.setAlignment(Pos.BOTTOM_CENTER);
@@ -389,15 +637,16 @@ public class SongAssociationGUI extends Application
 
         // timing
         VBox timingPane = new VBox(SPACING);
-        this.makeTimingNodes(gameplayNode, timingPane, userWarning);
+        this.makeTimingNodes(gameplayNode, timingPane, userWarning, currentWord);
 
         // quit
         Button quitButton = new Button("QUIT");
         this.styleButton(quitButton, this.accentColor,
                          MICRO_FONT_SIZE, this.mainColor);
-        this.quitButtonClicks = 0;
+        IntegerProperty quitClicks = new SimpleIntegerProperty(0);
+        boolean endless = this.model.getMode().getRoundsPerGame() == 0;
         timingPane.getChildren().add(quitButton);
-        quitButton.setOnAction(event -> this.quit(userWarning));
+        quitButton.setOnAction(event -> this.quit(userWarning, quitClicks, endless));
         timingPane.setAlignment(Pos.TOP_CENTER);
 
         return gameplayNode;
@@ -408,11 +657,11 @@ public class SongAssociationGUI extends Application
      * @param textField the text field to be customized
      */
     private void styleTextField(TextField textField) {
-        textField.setFont(PLAIN_FONT);
+        textField.setFont(plainFont());
         textField.setStyle("-fx-background-color: " + this.accentColor + ";" +
                            "-fx-font-size: " + MICRO_FONT_SIZE + ";" +
                            "-fx-text-fill: " + this.mainColor + ";" +
-                           "-fx-font-family: " + PLAIN_FONT.getFamily() + ";" +
+                           "-fx-font-family: " + plainFont().getFamily() + ";" +
                            "-fx-background-radius: 0;");
     }
 
@@ -420,8 +669,9 @@ public class SongAssociationGUI extends Application
      * Prompt the user for an artist name and song title
      * @param gameplayNode main node where user does song association
      * @param userWarning message explaining circumstances to user
+     * @param answerTime time taken to think of song
      */
-    private void promptAnswer(BorderPane gameplayNode, Label userWarning) {
+    private void promptAnswer(BorderPane gameplayNode, Label userWarning, int answerTime) {
         FlowPane answerNodes = new FlowPane();
 
         // artist name field
@@ -442,7 +692,6 @@ public class SongAssociationGUI extends Application
                          MICRO_FONT_SIZE, this.mainColor);
         answerNodes.getChildren().add(nextButton);
         this.nextButtonClicks = 0;
-        int answerTime = TIME_PER_WORD - timeLeft.getValue();
         nextButton.setOnAction(event -> nextRound(artistName.getText(), songName.getText(), userWarning, answerTime));
         answerNodes.setAlignment(Pos.BOTTOM_CENTER);
 
@@ -457,7 +706,7 @@ public class SongAssociationGUI extends Application
     private void makeMetricsNodes(BorderPane endPane, VBox metricsBox) {
         // metrics title
         Text metricsTitle = new Text("YOUR METRICS");
-        this.styleText(metricsTitle, MAIN_FONT, SMALL_FONT_SIZE, false, this.accentColor);
+        this.styleText(metricsTitle, mainFont(), SMALL_FONT_SIZE, false, this.accentColor);
         metricsTitle.setTextAlignment(TextAlignment.CENTER);
         metricsBox.getChildren().add(metricsTitle);
 
@@ -466,7 +715,7 @@ public class SongAssociationGUI extends Application
                                          "AVERAGE SCORE: " + this.model.getAverageScore() + "\n" +
                                          "NEW TIME: " + this.model.getTotalAnswerTime() + " s\n" +
                                          "AVERAGE TIME: " + this.model.getAverageTotalTime() + " s\n\n");
-        this.styleText(metricsValues, PLAIN_FONT, SMALL_FONT_SIZE, true, this.accentColor);
+        this.styleText(metricsValues, plainFont(), SMALL_FONT_SIZE, true, this.accentColor);
         metricsBox.getChildren().add(metricsValues);
 
         metricsBox.setAlignment(Pos.TOP_CENTER);
@@ -483,7 +732,7 @@ public class SongAssociationGUI extends Application
     private void makeMixNodes(BorderPane endPane, VBox mixBox) {
         // mix title
         Text mixTitle = new Text("YOUR MIX");
-        this.styleText(mixTitle, MAIN_FONT, SMALL_FONT_SIZE, false, this.accentColor);
+        this.styleText(mixTitle, mainFont(), SMALL_FONT_SIZE, false, this.accentColor);
         mixTitle.setTextAlignment(TextAlignment.CENTER);
         mixBox.getChildren().add(mixTitle);
 
@@ -492,18 +741,24 @@ public class SongAssociationGUI extends Application
             // song text
             String currentSong = this.model.getSongAnswers().get(i);
             Text songText = new Text(currentSong);
-            this.styleText(songText, PLAIN_FONT, SMALL_FONT_SIZE, true, this.accentColor);
+            this.styleText(songText, plainFont(), SMALL_FONT_SIZE, true, this.accentColor);
             // youtube button
             Button youtubeButton = new Button();
-            youtubeButton.setGraphic(new ImageView(new Image(getClass().getResourceAsStream("resources/youtube.png"))));
+            if (youtubeIcon == null) {
+                youtubeIcon = new Image(getClass().getResourceAsStream("resources/youtube.png"));
+            }
+            youtubeButton.setGraphic(new ImageView(youtubeIcon));
             youtubeButton.setStyle("-fx-border-color: transparent;" + "-fx-background-color: transparent;");
-            String youtubeUrl = "https://www.youtube.com/results?search_query=" + currentSong.replace(" ", "+");
+            String youtubeUrl = SongLinks.youtube(currentSong);
             youtubeButton.setOnAction(event -> getHostServices().showDocument(youtubeUrl));
             // spotify button
             Button spotifyButton = new Button();
-            spotifyButton.setGraphic(new ImageView(new Image(getClass(). getResourceAsStream("resources/spotify.png"))));
+            if (spotifyIcon == null) {
+                spotifyIcon = new Image(getClass().getResourceAsStream("resources/spotify.png"));
+            }
+            spotifyButton.setGraphic(new ImageView(spotifyIcon));
             spotifyButton.setStyle("-fx-border-color: transparent;" + "-fx-background-color: transparent;");
-            String spotifyUrl = "https://open.spotify.com/search/" + currentSong.replace(" ", "%20");
+            String spotifyUrl = SongLinks.spotify(currentSong);
             spotifyButton.setOnAction(event -> getHostServices().showDocument(spotifyUrl));
             // add all 3 to a flow pane which becomes its own row
             HBox songBox = new HBox(SPACING, songText, youtubeButton, spotifyButton);
@@ -531,7 +786,7 @@ public class SongAssociationGUI extends Application
 
         // title
         Text title = new Text("GAME OVER");
-        this.styleText(title, MAIN_FONT, MEDIUM_FONT_SIZE, false, this.accentColor);
+        this.styleText(title, mainFont(), MEDIUM_FONT_SIZE, false, this.accentColor);
         title.setTextAlignment(TextAlignment.CENTER);
         endPane.setTop(title);
         BorderPane.setAlignment(title, Pos.BOTTOM_CENTER);
@@ -554,6 +809,27 @@ public class SongAssociationGUI extends Application
         userMetrics.getChildren().add(homeButton);
         homeButton.setOnAction(event -> this.goBackHome());
 
+        // export button (saves the mix as a playlist file)
+        if (!this.model.getSongAnswers().isEmpty()) {
+            Button exportButton = new Button("EXPORT MIX");
+            this.styleButton(exportButton, this.accentColor,
+                             MICRO_FONT_SIZE, this.mainColor);
+            userMetrics.getChildren().add(exportButton);
+            List<String> mix = List.copyOf(this.model.getSongAnswers());
+            exportButton.setOnAction(event -> this.exportPlaylist(exportButton,
+                    playlist -> PlaylistExporter.export(mix, playlist)));
+        }
+
+        // history export button (saves the answers of every game played)
+        if (Files.exists(Path.of(HISTORY_FILE))) {
+            Button historyButton = new Button("EXPORT HISTORY");
+            this.styleButton(historyButton, this.accentColor,
+                             MICRO_FONT_SIZE, this.mainColor);
+            userMetrics.getChildren().add(historyButton);
+            historyButton.setOnAction(event -> this.exportPlaylist(historyButton,
+                    playlist -> PlaylistExporter.exportHistory(Path.of(HISTORY_FILE), playlist)));
+        }
+
         // user's mix
         if (!this.model.getSongAnswers().isEmpty()) {
             VBox userMix = new VBox();
@@ -563,6 +839,71 @@ public class SongAssociationGUI extends Application
         return endPane;
     }
 
+    /**
+     * Writes songs to a playlist file
+     */
+    private interface PlaylistWriter {
+        /**
+         * Write the playlist
+         * @param playlist the file to write
+         * @return number of songs written
+         * @throws IOException if the file cannot be written
+         */
+        long write(Path playlist) throws IOException;
+    }
+
+    /**
+     * Let the user pick a playlist file and write songs to it in the background
+     * @param exportButton button which started the export
+     * @param writer writes the songs to the chosen file
+     */
+    private void exportPlaylist(Button exportButton, PlaylistWriter writer) {
+        FileChooser chooser = new FileChooser();
+        chooser.setTitle("Export Playlist");
+        chooser.setInitialFileName("mix.m3u");
+        for (PlaylistExporter.Format format : PlaylistExporter.Format.values()) {
+            String extension = format.name().toLowerCase(Locale.ROOT);
+            chooser.getExtensionFilters().add(new FileChooser.ExtensionFilter(
+                    format.name() + " playlist", "*." + extension));
+        }
+        File file = chooser.showSaveDialog(this.stage);
+        if (file == null) {
+            return;
+        }
+
+        // fall back on the selected filter's extension (M3U if there is none)
+        // if the name has none we know
+        Path path = file.toPath();
+        try {
+            PlaylistExporter.Format.of(path);
+        } catch (IllegalArgumentException iae) {
+            FileChooser.ExtensionFilter filter = chooser.getSelectedExtensionFilter();
+            String extension = filter != null ? filter.getExtensions().get(0).substring(1)
+                                              : ".m3u";
+            path = path.resolveSibling(path.getFileName() + extension);
+        }
+
+        Path playlist = path;
+        exportButton.setDisable(true);
+        exportButton.setText("EXPORTING...");
+        CompletableFuture.supplyAsync(() -> {
+            try {
+                return writer.write(playlist);
+            } catch (IOException ioe) {
+                throw new UncheckedIOException(ioe);
+            }
+        }).whenComplete((count, error) -> this.pipeline.show(() -> {
+            exportButton.setDisable(false);
+            if (error != null) {
+                System.err.println(error.getMessage());
+                exportButton.setText("EXPORT FAILED");
+            }
+            else {
+                exportButton.setText("EXPORTED " + count + " SONGS");
+            }
+        }));
+    }
+
     /**
      * Progress to the next round
      * @param artistName artist of song entered by user
@@ -575,10 +916,7 @@ public class SongAssociationGUI extends Application
         // user entered an artist name and song title
         if (!artistName.equals("") && !songName.equals("")) {
             String song = artistName + " - " + songName;
-            this.model.endRound(song, answerTime);
-            if (this.model.getCurrentRound() <= SongAssociationModel.ROUNDS_PER_GAME) {
-                this.model.startRound();
-            }
+            this.submit(() -> this.finishRound(song, answerTime));
         }
         // user left a field blank and clicked next once (perhaps accidentally)
         else if (this.nextButtonClicks == 1){
@@ -586,10 +924,20 @@ public class SongAssociationGUI extends Application
         }
         // user left a field blank and chooses to continue regardless
         else {
-            this.model.endRound(null, answerTime);
-            if (this.model.getCurrentRound() <= SongAssociationModel.ROUNDS_PER_GAME) {
-                this.model.startRound();
-            }
+            this.submit(() -> this.finishRound(null, answerTime));
+        }
+    }
+
+    /**
+     * End the current round and start the next one, if the game isn't over
+     * (runs on the background thread)
+     * @param song song entered by user, or null if none
+     * @param answerTime time taken to think of song
+     */
+    private void finishRound(String song, int answerTime) {
+        this.model.endRound(song, answerTime);
+        if (!this.model.isGameOver()) {
+            this.model.startRound();
         }
     }
 
@@ -597,34 +945,46 @@ public class SongAssociationGUI extends Application
      * Start new game
      */
     private void newGame() {
-        this.model.reset();
-        this.model.startRound();
+        this.submit(() -> {
+            this.model.reset();
+            this.model.startRound();
+        });
     }
 
     /**
      * Return to start screen
      */
     private void goBackHome() {
-        this.model.reset();
-        this.stage.setScene(new Scene(makeStartPane()));
+        this.reloadBlocklist();
+        this.submit(() -> {
+            this.model.reset();
+            this.showScene(makeStartPane());
+        });
     }
 
     /**
-     * Quit game to return to start screen
+     * Quit game to return to start screen (or to the end screen in endless mode)
      * @param userWarning message explaining circumstances to user
+     * @param quitClicks number of times the quit button has been clicked in this scene
+     * @param endless true if the game being quit has no set number of rounds
      */
-    private void quit(Label userWarning) {
-        this.quitButtonClicks += 1;
-        if (this.quitButtonClicks == 1) {
+    private void quit(Label userWarning, IntegerProperty quitClicks, boolean endless) {
+        quitClicks.set(quitClicks.get() + 1);
+        if (quitClicks.get() == 1) {
             userWarning.setText("Click again to confirm.");
         }
+        // endless games only end when the user quits, so show how they did
+        else if (endless) {
+            this.submit(this.model::endGame);
+        }
         else {
             this.goBackHome();
         }
     }
 
     /**
-     * Update the view
+     * Update the view. The next pane is built on the thread the model
+     * changed on and only swapped in on the application thread.
      * @param songAssociationModel model of this view
      * @param o object passed by model
      */
@@ -632,13 +992,68 @@ public class SongAssociationGUI extends Application
     public void update(SongAssociationModel songAssociationModel, Object o) {
         if (String.valueOf(o).contains("word:")) {
             String currentWord = String.valueOf(o).substring(5);
-            this.stage.setScene(new Scene(makeGameplayPane(currentWord)));
+            BorderPane gameplayPane = makeGameplayPane(currentWord);
+            Timeline timer = this.roundTimer;
+            this.pipeline.show(() -> {
+                this.stage.setScene(new Scene(gameplayPane));
+                this.awaitingScene = false;
+                timer.playFromStart();
+            });
         }
         else {
-            this.stage.setScene(new Scene(makeEndPane()));
+            this.saveHistory();
+            this.showScene(makeEndPane());
         }
     }
 
+    /**
+     * Add the answers of the game that just ended to the history file
+     */
+    private void saveHistory() {
+        List<String> songAnswers = this.model.getSongAnswers();
+        if (songAnswers.isEmpty()) {
+            return;
+        }
+        try {
+            PlaylistExporter.appendHistory(songAnswers, Path.of(HISTORY_FILE));
+        } catch (IOException ioe) {
+            System.err.println(ioe.getMessage());
+        }
+    }
+
+    /**
+     * Run model work on the background thread, unless a click is already
+     * waiting on its scene; otherwise a second click on the old scene
+     * would end or start another round (runs on the application thread).
+     * If the work fails, clicks are accepted again on the current scene.
+     * @param task model work which ends by showing a new scene
+     */
+    private void submit(Runnable task) {
+        if (this.awaitingScene) {
+            return;
+        }
+        this.awaitingScene = true;
+        this.pipeline.prepare(() -> {
+            try {
+                task.run();
+            } catch (RuntimeException re) {
+                System.err.println(re);
+                this.pipeline.show(() -> this.awaitingScene = false);
+            }
+        });
+    }
+
+    /**
+     * Swap in a pane built on the background thread and accept clicks again
+     * @param pane the pane to show
+     */
+    private void showScene(BorderPane pane) {
+        this.pipeline.show(() -> {
+            this.stage.setScene(new Scene(pane));
+            this.awaitingScene = false;
+        });
+    }
+
     /**
      * main entry point launches the JavaFX GUI.
      *
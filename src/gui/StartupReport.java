@@ -0,0 +1,107 @@
+package gui;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Records how long each phase of starting the game takes, measured from
+ * the moment the process was started, so the time to first frame can be
+ * broken down.
+ *
+ * @author Uzo Ukekwe
+ */
+final class StartupReport {
+    /** When the process was started (or this class loaded, if unknown) */
+    private final static Instant PROCESS_START =
+            ProcessHandle.current().info().startInstant().orElse(Instant.now());
+
+    /** Phases recorded so far, from any thread */
+    private final static List<Phase> PHASES = new ArrayList<>();
+
+    /** One timed phase of startup */
+    private final static class Phase {
+        /** What was being done */
+        private final String name;
+
+        /** When the phase started */
+        private final Instant start;
+
+        /** When the phase ended */
+        private final Instant end;
+
+        private Phase(String name, Instant start, Instant end) {
+            this.name = name;
+            this.start = start;
+            this.end = end;
+        }
+    }
+
+    private StartupReport() {}
+
+    /**
+     * Do some work and record how long it took
+     * @param phase name of the phase
+     * @param work the work to do
+     * @param <T> type of the work's result
+     * @return the work's result
+     */
+    static <T> T time(String phase, Supplier<T> work) {
+        Instant start = Instant.now();
+        T result = work.get();
+        record(new Phase(phase, start, Instant.now()));
+        return result;
+    }
+
+    /**
+     * Record that something happened at this moment
+     * @param event name of the event
+     */
+    static void mark(String event) {
+        Instant now = Instant.now();
+        record(new Phase(event, now, now));
+    }
+
+    /**
+     * Add a phase to the report
+     * @param phase the phase
+     */
+    private static void record(Phase phase) {
+        synchronized (PHASES) {
+            PHASES.add(phase);
+        }
+    }
+
+    /**
+     * Print every phase recorded so far in the order they started, with
+     * their start and end relative to the start of the process
+     */
+    static void print() {
+        List<Phase> phases;
+        synchronized (PHASES) {
+            phases = new ArrayList<>(PHASES);
+        }
+        phases.sort(Comparator.comparing(phase -> phase.start));
+
+        StringBuilder report = new StringBuilder("STARTUP TIMING (ms since process start)\n");
+        for (Phase phase : phases) {
+            report.append(String.format("%8.1f %8.1f  %-14s %6.1f ms%n",
+                    millis(PROCESS_START, phase.start), millis(PROCESS_START, phase.end),
+                    phase.name, millis(phase.start, phase.end)));
+        }
+        System.err.print(report);
+    }
+
+    /**
+     * Get the time between two instants
+     * @param from the earlier instant
+     * @param to the later instant
+     * @return milliseconds between the two, with a fraction
+     */
+    private static double millis(Instant from, Instant to) {
+        return Duration.between(from, to).toNanos() / 1e6;
+    }
+}
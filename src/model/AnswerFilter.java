@@ -0,0 +1,243 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Aho-Corasick automaton that finds blocked terms in an answer in a single
+ * pass over its characters. Matching ignores case and only counts whole
+ * words, so a blocked term inside a longer word is not a match.
+ *
+ * The trie is stored in flat arrays: the edges leaving each state are a
+ * sorted run of (character, target) pairs, found through edgeStart. Once
+ * built, an automaton is never modified, so it can be shared between
+ * threads and scanning allocates nothing.
+ *
+ * @author Uzo Ukekwe
+ */
+public class AnswerFilter {
+    /** A filter which blocks nothing */
+    public final static AnswerFilter EMPTY = build(new ArrayList<>());
+
+    /** The root state, reached before any character is read */
+    private final static int ROOT = 0;
+
+    /** Index of the first edge of each state (with one extra entry at the end) */
+    private final int[] edgeStart;
+
+    /** Character on each edge, sorted within each state */
+    private final char[] edgeChar;
+
+    /** State each edge leads to */
+    private final int[] edgeTarget;
+
+    /** State to fall back on when no edge matches the next character */
+    private final int[] fail;
+
+    /** Length of the term ending at each state (0 if none ends there) */
+    private final int[] termLength;
+
+    /** Nearest state on the fail chain where a term ends (ROOT if none) */
+    private final int[] output;
+
+    /** Number of distinct terms in this filter */
+    private final int termCount;
+
+    /**
+     * Construct an AnswerFilter from a finished trie; see build.
+     */
+    private AnswerFilter(int[] edgeStart, char[] edgeChar, int[] edgeTarget,
+                         int[] termLength, int termCount) {
+        this.edgeStart = edgeStart;
+        this.edgeChar = edgeChar;
+        this.edgeTarget = edgeTarget;
+        this.termLength = termLength;
+        this.termCount = termCount;
+        this.fail = new int[termLength.length];
+        this.output = new int[termLength.length];
+        this.linkStates();
+    }
+
+    /**
+     * Build a filter for a list of blocked terms. Blank terms are ignored.
+     * @param terms the blocked terms
+     * @return the filter
+     */
+    public static AnswerFilter build(Collection<String> terms) {
+        String[] sorted = terms.stream()
+                               .map(AnswerFilter::normalize)
+                               .filter(term -> !term.isEmpty())
+                               .sorted()
+                               .distinct()
+                               .toArray(String[]::new);
+
+        // insert the terms in sorted order, so the children of every state
+        // are created in increasing order of their character
+        int maxStates = 1;
+        for (String term : sorted) {
+            maxStates += term.length();
+        }
+        int[] parent = new int[maxStates];
+        char[] label = new char[maxStates];
+        int[] termLength = new int[maxStates];
+        int[] path = new int[1];
+        int states = 1;
+        String previous = "";
+        for (String term : sorted) {
+            if (path.length <= term.length()) {
+                path = Arrays.copyOf(path, term.length() + 1);
+            }
+            int common = 0;
+            while (common < previous.length() && common < term.length()
+                    && previous.charAt(common) == term.charAt(common)) {
+                common += 1;
+            }
+            for (int i = common; i < term.length(); i++) {
+                parent[states] = path[i];
+                label[states] = term.charAt(i);
+                path[i + 1] = states;
+                states += 1;
+            }
+            termLength[path[term.length()]] = term.length();
+            previous = term;
+        }
+
+        // group the edges by the state they leave from, keeping their order
+        int[] edgeStart = new int[states + 1];
+        for (int state = 1; state < states; state++) {
+            edgeStart[parent[state] + 1] += 1;
+        }
+        for (int state = 0; state < states; state++) {
+            edgeStart[state + 1] += edgeStart[state];
+        }
+        int[] next = Arrays.copyOf(edgeStart, states);
+        char[] edgeChar = new char[states - 1];
+        int[] edgeTarget = new int[states - 1];
+        for (int state = 1; state < states; state++) {
+            int edge = next[parent[state]]++;
+            edgeChar[edge] = label[state];
+            edgeTarget[edge] = state;
+        }
+
+        return new AnswerFilter(edgeStart, edgeChar, edgeTarget,
+                Arrays.copyOf(termLength, states), sorted.length);
+    }
+
+    /**
+     * Put a term in the form it is matched in
+     * @param term the term
+     * @return the term in lower case, without surrounding spaces
+     */
+    private static String normalize(String term) {
+        StringBuilder normalized = new StringBuilder(term.strip());
+        for (int i = 0; i < normalized.length(); i++) {
+            normalized.setCharAt(i, Character.toLowerCase(normalized.charAt(i)));
+        }
+        return normalized.toString();
+    }
+
+    /**
+     * Compute the fail and output links of every state, breadth first.
+     */
+    private void linkStates() {
+        int[] queue = new int[this.termLength.length];
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = ROOT;
+        while (head < tail) {
+            int state = queue[head++];
+            for (int edge = this.edgeStart[state]; edge < this.edgeStart[state + 1]; edge++) {
+                int target = this.edgeTarget[edge];
+                int fallback = ROOT;
+                if (state != ROOT) {
+                    fallback = this.step(this.fail[state], this.edgeChar[edge]);
+                }
+                this.fail[target] = fallback;
+                this.output[target] = this.termLength[fallback] > 0 ?
+                                      fallback : this.output[fallback];
+                queue[tail++] = target;
+            }
+        }
+    }
+
+    /**
+     * Find the edge leaving a state on a character
+     * @param state the state
+     * @param c the character
+     * @return the state the edge leads to, or -1 if there is no such edge
+     */
+    private int child(int state, char c) {
+        int low = this.edgeStart[state];
+        int high = this.edgeStart[state + 1] - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            char found = this.edgeChar[middle];
+            if (found < c) {
+                low = middle + 1;
+            }
+            else if (found > c) {
+                high = middle - 1;
+            }
+            else {
+                return this.edgeTarget[middle];
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Move the automaton forward by one character
+     * @param state the current state
+     * @param c the next character
+     * @return the next state
+     */
+    private int step(int state, char c) {
+        int next = this.child(state, c);
+        while (next < 0 && state != ROOT) {
+            state = this.fail[state];
+            next = this.child(state, c);
+        }
+        return next < 0 ? ROOT : next;
+    }
+
+    /**
+     * Check whether an answer contains a blocked term as a whole word
+     * @param answer the answer to check
+     * @return true if a blocked term was found
+     */
+    public boolean matches(CharSequence answer) {
+        int state = ROOT;
+        for (int i = 0; i < answer.length(); i++) {
+            state = this.step(state, Character.toLowerCase(answer.charAt(i)));
+            int match = this.termLength[state] > 0 ? state : this.output[state];
+            while (match != ROOT) {
+                int start = i + 1 - this.termLength[match];
+                if (isBoundary(answer, start - 1) && isBoundary(answer, i + 1)) {
+                    return true;
+                }
+                match = this.output[match];
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Check whether a position lies outside of any word
+     * @param text the text being scanned
+     * @param index position just before or after a possible match
+     * @return true if the position is past either end or not a letter or digit
+     */
+    private static boolean isBoundary(CharSequence text, int index) {
+        return index < 0 || index >= text.length()
+                || !Character.isLetterOrDigit(text.charAt(index));
+    }
+
+    /**
+     * Get the number of distinct terms this filter blocks
+     * @return the number of terms
+     */
+    public int getTermCount() {
+        return this.termCount;
+    }
+}
@@ -0,0 +1,92 @@
+package model;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Screens song answers against a blocklist. The blocklist can be reloaded
+ * at any time: the new filter is built in the background and swapped in
+ * once it is ready, so answers keep being screened by the old one until
+ * then and scoring never waits on a reload. Reloads run one at a time in
+ * the order they were asked for, and one that has already been superseded
+ * by a newer reload is skipped, so the newest blocklist always wins.
+ *
+ * @author Uzo Ukekwe
+ */
+public class AnswerModerator {
+    /** Filter currently used to screen answers */
+    private volatile AnswerFilter filter;
+
+    /** Thread that reads blocklists and builds their filters */
+    private final ExecutorService loader;
+
+    /** Number of reloads asked for so far, so stale ones can be skipped */
+    private final AtomicLong generation;
+
+    /**
+     * Construct an AnswerModerator which blocks nothing until a blocklist is loaded.
+     */
+    public AnswerModerator() {
+        this.filter = AnswerFilter.EMPTY;
+        this.loader = Executors.newSingleThreadExecutor(task -> {
+            Thread thread = new Thread(task, "blocklist-loader");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.generation = new AtomicLong();
+    }
+
+    /**
+     * Check whether an answer contains a blocked term
+     * @param answer the answer to check
+     * @return true if the answer should not be shown
+     */
+    public boolean isBlocked(String answer) {
+        return this.filter.matches(answer);
+    }
+
+    /**
+     * Replace the blocklist with the terms in a file, one per line. Lines
+     * starting with # are ignored.
+     * @param blocklist the file to read
+     * @return completes with the filter in use once this reload is done,
+     *         which is an older one if a newer reload was asked for meanwhile
+     */
+    public CompletableFuture<AnswerFilter> reload(Path blocklist) {
+        long reload = this.generation.incrementAndGet();
+        return CompletableFuture.supplyAsync(() -> {
+            if (reload != this.generation.get()) {
+                return this.filter;
+            }
+            try (var lines = Files.lines(blocklist, StandardCharsets.UTF_8)) {
+                AnswerFilter newFilter = AnswerFilter.build(
+                        lines.filter(line -> !line.startsWith("#"))
+                             .collect(Collectors.toList()));
+                // a newer reload was asked for while this one was building
+                if (reload != this.generation.get()) {
+                    return this.filter;
+                }
+                this.filter = newFilter;
+                return newFilter;
+            } catch (IOException ioe) {
+                throw new UncheckedIOException(ioe);
+            }
+        }, this.loader);
+    }
+
+    /**
+     * Get the filter currently used to screen answers
+     * @return the filter
+     */
+    public AnswerFilter getFilter() {
+        return this.filter;
+    }
+}
@@ -0,0 +1,158 @@
+package model;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+
+/**
+ * Binary copy of the parsed words file, reused between runs so the text
+ * file only has to be parsed again after it changes. The snapshot records
+ * the size and modification time of the file it was made from and is
+ * ignored as soon as either one differs.
+ *
+ * <pre>
+ * magic (int) | version (int) | source size (long) | source modified (long)
+ * | #words (int) | words...
+ * </pre>
+ *
+ * Each word is stored as a length-prefixed run of UTF-8 bytes.
+ *
+ * @author Uzo Ukekwe
+ */
+public final class CorpusSnapshot {
+    /** Identifies a snapshot file ("SAWD") */
+    private final static int MAGIC = 0x53415744;
+
+    /** Layout version, bumped whenever the format changes */
+    private final static int VERSION = 1;
+
+    /** Size of the snapshot header in bytes */
+    private final static int HEADER_SIZE = 28;
+
+    private CorpusSnapshot() {}
+
+    /**
+     * Read the words in a words file, from its snapshot if it is up to
+     * date and otherwise by parsing the file and saving a new snapshot.
+     * @param wordsFile the text file, one word per line
+     * @param snapshotFile where the snapshot of the words file is kept
+     * @return the words, in file order
+     * @throws IOException if the words file cannot be read
+     */
+    public static ArrayList<String> load(Path wordsFile, Path snapshotFile) throws IOException {
+        long size = Files.size(wordsFile);
+        long modified = Files.getLastModifiedTime(wordsFile).toMillis();
+
+        ArrayList<String> words = readSnapshot(snapshotFile, size, modified);
+        if (words == null) {
+            words = parse(wordsFile);
+            try {
+                writeSnapshot(snapshotFile, words, size, modified);
+            } catch (IOException ioe) {
+                // the words were read fine, the next run just parses them again
+                System.err.println(ioe.getMessage());
+            }
+        }
+        return words;
+    }
+
+    /**
+     * Parse a words file line by line
+     * @param wordsFile the text file, one word per line
+     * @return the words, in file order
+     * @throws IOException if the file cannot be read
+     */
+    private static ArrayList<String> parse(Path wordsFile) throws IOException {
+        ArrayList<String> words = new ArrayList<>();
+        try (BufferedReader in = Files.newBufferedReader(wordsFile, StandardCharsets.UTF_8)) {
+            String newWord = in.readLine();
+            while (newWord != null) {
+                words.add(newWord);
+                newWord = in.readLine();
+            }
+        }
+        return words;
+    }
+
+    /**
+     * Read a snapshot, if it exists and matches its words file
+     * @param snapshotFile the snapshot
+     * @param size expected size of the words file
+     * @param modified expected modification time of the words file
+     * @return the words, or null if the snapshot is missing, stale or damaged
+     */
+    private static ArrayList<String> readSnapshot(Path snapshotFile, long size, long modified) {
+        if (!Files.exists(snapshotFile)) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(snapshotFile, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_SIZE) {
+                return null;
+            }
+            MappedByteBuffer snapshot = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (snapshot.getInt() != MAGIC || snapshot.getInt() != VERSION
+                    || snapshot.getLong() != size || snapshot.getLong() != modified) {
+                return null;
+            }
+            int count = snapshot.getInt();
+            ArrayList<String> words = new ArrayList<>(count);
+            byte[] bytes = new byte[64];
+            for (int i = 0; i < count; i++) {
+                int length = snapshot.getInt();
+                if (length > bytes.length) {
+                    bytes = new byte[length];
+                }
+                snapshot.get(bytes, 0, length);
+                words.add(new String(bytes, 0, length, StandardCharsets.UTF_8));
+            }
+            return words;
+        } catch (IOException | RuntimeException e) {
+            // a damaged snapshot is only a missed shortcut
+            return null;
+        }
+    }
+
+    /**
+     * Save a snapshot of a words file, replacing any previous one at once
+     * @param snapshotFile where to save the snapshot
+     * @param words the parsed words
+     * @param size size of the words file
+     * @param modified modification time of the words file
+     * @throws IOException if the snapshot cannot be written
+     */
+    private static void writeSnapshot(Path snapshotFile, ArrayList<String> words,
+                                      long size, long modified) throws IOException {
+        ArrayList<byte[]> encoded = new ArrayList<>(words.size());
+        int length = HEADER_SIZE;
+        for (String word : words) {
+            byte[] bytes = word.getBytes(StandardCharsets.UTF_8);
+            encoded.add(bytes);
+            length += 4 + bytes.length;
+        }
+
+        ByteBuffer snapshot = ByteBuffer.allocate(length);
+        snapshot.putInt(MAGIC).putInt(VERSION).putLong(size).putLong(modified).putInt(words.size());
+        for (byte[] bytes : encoded) {
+            snapshot.putInt(bytes.length).put(bytes);
+        }
+        snapshot.flip();
+
+        Path temporary = snapshotFile.resolveSibling(snapshotFile.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (snapshot.hasRemaining()) {
+                channel.write(snapshot);
+            }
+        }
+        Files.move(temporary, snapshotFile, StandardCopyOption.REPLACE_EXISTING,
+                   StandardCopyOption.ATOMIC_MOVE);
+    }
+}
@@ -0,0 +1,73 @@
+package model;
+
+/**
+ * The rules that decide how long a game lasts and how long the user has
+ * to answer each round.
+ *
+ * @author Uzo Ukekwe
+ */
+public interface GameMode {
+    /** The original format: 15 rounds of 10 seconds */
+    GameMode CLASSIC = new StandardGameMode("CLASSIC", SongAssociationModel.ROUNDS_PER_GAME, 10);
+
+    /** Same number of rounds with half the time to answer */
+    GameMode BLITZ = new StandardGameMode("BLITZ", SongAssociationModel.ROUNDS_PER_GAME, 5);
+
+    /** A marathon which goes on until the user quits */
+    GameMode ENDLESS = new StandardGameMode("ENDLESS", 0, 10);
+
+    /**
+     * Create a mode with a custom number of rounds and time per round
+     * @param name name shown to the user
+     * @param roundsPerGame number of rounds per game (0 for no limit)
+     * @param timePerWord seconds given to answer each round
+     * @return the new mode
+     */
+    static GameMode custom(String name, int roundsPerGame, int timePerWord) {
+        return new StandardGameMode(name, roundsPerGame, timePerWord);
+    }
+
+    /**
+     * Find the mode with the given rules, e.g. when restoring a saved game
+     * @param name name shown to the user
+     * @param roundsPerGame number of rounds per game (0 for no limit)
+     * @param timePerWord seconds given to answer each round
+     * @return the built-in mode with these rules, or a custom mode if there is none
+     */
+    static GameMode of(String name, int roundsPerGame, int timePerWord) {
+        for (GameMode mode : new GameMode[] {CLASSIC, BLITZ, ENDLESS}) {
+            if (mode.getName().equals(name) && mode.getRoundsPerGame() == roundsPerGame
+                    && mode.getTimePerWord() == timePerWord) {
+                return mode;
+            }
+        }
+        return custom(name, roundsPerGame, timePerWord);
+    }
+
+    /**
+     * Get the name of this mode
+     * @return the name shown to the user
+     */
+    String getName();
+
+    /**
+     * Get the length of a game in this mode
+     * @return number of rounds per game, or 0 if games never end on their own
+     */
+    int getRoundsPerGame();
+
+    /**
+     * Get the time given for each round in this mode
+     * @return seconds the user has to think of a song
+     */
+    int getTimePerWord();
+
+    /**
+     * Decide whether a game is over
+     * @param roundsPlayed number of rounds finished so far
+     * @return true if no more rounds should be played
+     */
+    default boolean isGameOver(int roundsPlayed) {
+        return getRoundsPerGame() > 0 && roundsPlayed >= getRoundsPerGame();
+    }
+}
@@ -0,0 +1,282 @@
+package model;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Writes song answers to a playlist file. Entries are streamed through
+ * a fixed-size buffer into a file channel one at a time, so any number of
+ * answers can be exported in constant memory.
+ *
+ * @author Uzo Ukekwe
+ */
+public class PlaylistExporter implements AutoCloseable {
+    /** Playlist file formats that can be written */
+    public enum Format {
+        /** Extended M3U, one YouTube link per entry */
+        M3U,
+        /** Comma-separated values with a header row */
+        CSV,
+        /** A JSON array of objects */
+        JSON;
+
+        /**
+         * Pick the format matching a file's extension
+         * @param path the file to be written
+         * @return the matching format
+         * @throws IllegalArgumentException if the extension is not supported
+         */
+        public static Format of(Path path) {
+            String name = path.getFileName().toString();
+            String extension = name.substring(name.lastIndexOf('.') + 1);
+            return Format.valueOf(extension.toUpperCase(Locale.ROOT));
+        }
+    }
+
+    /** Size of the buffer entries are encoded into */
+    private final static int BUFFER_SIZE = 64 * 1024;
+
+    /** File being written */
+    private final FileChannel channel;
+
+    /** Format of the file being written */
+    private final Format format;
+
+    /** Encodes each entry into the byte buffer */
+    private final CharsetEncoder encoder;
+
+    /** Encoded bytes waiting to be written to the channel */
+    private final ByteBuffer buffer;
+
+    /** Text of the entry being written, reused for every entry */
+    private final StringBuilder entry;
+
+    /** Number of entries written so far */
+    private long count;
+
+    /**
+     * Create a playlist file, replacing any existing one, and write its header.
+     * @param path the file to write
+     * @param format the format to write it in
+     * @throws IOException if the file cannot be created
+     */
+    public PlaylistExporter(Path path, Format format) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        this.format = format;
+        this.encoder = StandardCharsets.UTF_8.newEncoder();
+        this.buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        this.entry = new StringBuilder();
+        this.count = 0;
+
+        switch (format) {
+            case M3U -> this.entry.append("#EXTM3U\n");
+            case CSV -> this.entry.append("artist,title,youtube,spotify\n");
+            case JSON -> this.entry.append("[");
+        }
+        this.writeEntry();
+    }
+
+    /**
+     * Export songs to a playlist file, picking the format from its extension.
+     * @param songs the song answers to export, as "artist - title"
+     * @param path the file to write
+     * @return number of songs written
+     * @throws IOException if the file cannot be written
+     */
+    public static long export(Iterable<String> songs, Path path) throws IOException {
+        try (PlaylistExporter exporter = new PlaylistExporter(path, Format.of(path))) {
+            for (String song : songs) {
+                exporter.add(song);
+            }
+            return exporter.count;
+        }
+    }
+
+    /**
+     * Export every song in a history file to a playlist file, reading the
+     * history a line at a time so it can be any length.
+     * @param history file of song answers, one per line
+     * @param path the file to write
+     * @return number of songs written
+     * @throws IOException if the history cannot be read or the file cannot be written
+     */
+    public static long exportHistory(Path history, Path path) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(history, StandardCharsets.UTF_8);
+             PlaylistExporter exporter = new PlaylistExporter(path, Format.of(path))) {
+            for (String song = reader.readLine(); song != null; song = reader.readLine()) {
+                exporter.add(song);
+            }
+            return exporter.count;
+        }
+    }
+
+    /**
+     * Add songs to the end of a history file, creating it if needed
+     * @param songs the song answers to add
+     * @param history file of song answers, one per line
+     * @throws IOException if the history cannot be written
+     */
+    public static void appendHistory(List<String> songs, Path history) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(history, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            for (String song : songs) {
+                // one answer per line, whatever was typed
+                writer.write(song.replace('\n', ' ').replace('\r', ' '));
+                writer.newLine();
+            }
+        }
+    }
+
+    /**
+     * Add a song to the playlist
+     * @param song the song answer, as "artist - title"
+     * @throws IOException if the file cannot be written
+     */
+    public void add(String song) throws IOException {
+        String artist = SongLinks.artist(song);
+        String title = SongLinks.title(song);
+        switch (this.format) {
+            case M3U -> this.entry.append("#EXTINF:-1,").append(song.replace('\n', ' '))
+                                  .append('\n').append(SongLinks.youtube(song)).append('\n');
+            case CSV -> {
+                appendCsv(artist).append(',');
+                appendCsv(title).append(',');
+                this.entry.append(SongLinks.youtube(song)).append(',')
+                          .append(SongLinks.spotify(song)).append('\n');
+            }
+            case JSON -> {
+                this.entry.append(this.count == 0 ? "\n  " : ",\n  ").append("{\"artist\": ");
+                appendJson(artist).append(", \"title\": ");
+                appendJson(title).append(", \"youtube\": \"").append(SongLinks.youtube(song))
+                          .append("\", \"spotify\": \"").append(SongLinks.spotify(song)).append("\"}");
+            }
+        }
+        this.count += 1;
+        this.writeEntry();
+    }
+
+    /**
+     * Append a CSV field, quoting it if needed
+     * @param field the field's value
+     * @return the entry being built
+     */
+    private StringBuilder appendCsv(String field) {
+        boolean quoted = field.indexOf(',') >= 0 || field.indexOf('"') >= 0
+                || field.indexOf('\n') >= 0 || field.indexOf('\r') >= 0;
+        if (!quoted) {
+            return this.entry.append(field);
+        }
+        this.entry.append('"');
+        for (int i = 0; i < field.length(); i++) {
+            char c = field.charAt(i);
+            if (c == '"') {
+                this.entry.append('"');
+            }
+            this.entry.append(c);
+        }
+        return this.entry.append('"');
+    }
+
+    /**
+     * Append a JSON string literal
+     * @param value the string's value
+     * @return the entry being built
+     */
+    private StringBuilder appendJson(String value) {
+        this.entry.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> this.entry.append("\\\"");
+                case '\\' -> this.entry.append("\\\\");
+                case '\n' -> this.entry.append("\\n");
+                case '\r' -> this.entry.append("\\r");
+                case '\t' -> this.entry.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        this.entry.append(String.format("\\u%04x", (int) c));
+                    }
+                    else {
+                        this.entry.append(c);
+                    }
+                }
+            }
+        }
+        return this.entry.append('"');
+    }
+
+    /**
+     * Encode the current entry into the buffer, writing the buffer out
+     * whenever it fills up, and clear the entry
+     * @throws IOException if the file cannot be written
+     */
+    private void writeEntry() throws IOException {
+        CharBuffer chars = CharBuffer.wrap(this.entry);
+        CoderResult result = this.encoder.encode(chars, this.buffer, false);
+        while (result.isOverflow()) {
+            this.flushBuffer();
+            result = this.encoder.encode(chars, this.buffer, false);
+        }
+        if (result.isError()) {
+            result.throwException();
+        }
+        this.entry.setLength(0);
+    }
+
+    /**
+     * Write everything in the buffer to the channel
+     * @throws IOException if the file cannot be written
+     */
+    private void flushBuffer() throws IOException {
+        this.buffer.flip();
+        while (this.buffer.hasRemaining()) {
+            this.channel.write(this.buffer);
+        }
+        this.buffer.clear();
+    }
+
+    /**
+     * Get the number of songs written so far
+     * @return the number of songs
+     */
+    public long getCount() {
+        return this.count;
+    }
+
+    /**
+     * Write the footer and any buffered entries, then close the file.
+     * @throws IOException if the file cannot be written
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            if (this.format == Format.JSON) {
+                this.entry.append(this.count == 0 ? "]\n" : "\n]\n");
+                this.writeEntry();
+            }
+            CharBuffer empty = CharBuffer.allocate(0);
+            while (this.encoder.encode(empty, this.buffer, true).isOverflow()) {
+                this.flushBuffer();
+            }
+            while (this.encoder.flush(this.buffer).isOverflow()) {
+                this.flushBuffer();
+            }
+            this.flushBuffer();
+        } finally {
+            this.channel.close();
+        }
+    }
+}
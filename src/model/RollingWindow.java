@@ -0,0 +1,92 @@
+package model;
+
+/**
+ * Fixed-size window over the most recent values added to it, kept in a
+ * ring buffer with a running sum so that adding a value and reading the
+ * sum or average both take constant time and memory.
+ *
+ * @author Uzo Ukekwe
+ */
+public class RollingWindow {
+    /** Most recent values, oldest overwritten first */
+    private final int[] values;
+
+    /** Index the next value will be written to */
+    private int next;
+
+    /** Number of values currently in the window */
+    private int count;
+
+    /** Sum of the values currently in the window */
+    private long sum;
+
+    /**
+     * Construct an empty RollingWindow.
+     * @param size the number of most recent values kept
+     */
+    public RollingWindow(int size) {
+        if (size < 1) {
+            throw new IllegalArgumentException("Window size must be positive");
+        }
+        this.values = new int[size];
+        this.clear();
+    }
+
+    /**
+     * Add a value, dropping the oldest one if the window is full
+     * @param value the value to add
+     */
+    public void add(int value) {
+        if (this.count == this.values.length) {
+            this.sum -= this.values[this.next];
+        }
+        else {
+            this.count += 1;
+        }
+        this.values[this.next] = value;
+        this.sum += value;
+        this.next = (this.next + 1) % this.values.length;
+    }
+
+    /**
+     * Remove every value from the window.
+     */
+    public void clear() {
+        this.next = 0;
+        this.count = 0;
+        this.sum = 0;
+    }
+
+    /**
+     * Get the values currently in the window
+     * @return the values, oldest first
+     */
+    public int[] toArray() {
+        int[] window = new int[this.count];
+        int oldest = (this.next - this.count + this.values.length) % this.values.length;
+        for (int i = 0; i < this.count; i++) {
+            window[i] = this.values[(oldest + i) % this.values.length];
+        }
+        return window;
+    }
+
+    public int getSize() {
+        return this.values.length;
+    }
+
+    public int getCount() {
+        return this.count;
+    }
+
+    public long getSum() {
+        return this.sum;
+    }
+
+    /**
+     * Get the average of the values in the window
+     * @return the average, rounded down (0 if the window is empty)
+     */
+    public int getAverage() {
+        return this.count == 0 ? 0 : (int) (this.sum / this.count);
+    }
+}
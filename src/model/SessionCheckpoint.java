@@ -0,0 +1,349 @@
+package model;
+
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Memory-mapped checkpoint of an in-progress game, written after every
+ * round so a session can be resumed if the application dies mid-game.
+ *
+ * The file has a fixed layout: a small header followed by two equally
+ * sized slots. Each save goes to the slot that does not hold the newest
+ * state, and that slot's sequence number is written last, so a torn write
+ * can only ever damage the older copy.
+ *
+ * <pre>
+ * header: magic (int) | version (int) | slot size (int) | reserved (int)
+ * slot:   sequence (long) | payload length (int) | crc32 (int) | payload
+ * payload: mode name | rounds per game | time per word | round | score | answer time
+ *          | #recent points | recent points... | #recent answer times | recent answer times...
+ *          | #answers | answers... | #words | words... | #drawn words | drawn words...
+ * </pre>
+ *
+ * Strings are stored as a length-prefixed run of UTF-8 bytes. The recent
+ * points and answer times are the model's rolling windows, oldest first.
+ *
+ * @author Uzo Ukekwe
+ */
+public class SessionCheckpoint implements AutoCloseable {
+    /** Identifies a checkpoint file ("SACK") */
+    private final static int MAGIC = 0x5341434b;
+
+    /** Layout version, bumped whenever the payload format changes */
+    private final static int VERSION = 4;
+
+    /** Size of the file header in bytes */
+    private final static int HEADER_SIZE = 16;
+
+    /** Size of the per-slot header (sequence, length, crc) in bytes */
+    private final static int SLOT_HEADER_SIZE = 16;
+
+    /** Bytes reserved for each slot, header included */
+    public final static int SLOT_SIZE = 1 << 20;
+
+    /** Mapping of the whole checkpoint file */
+    private final MappedByteBuffer mapped;
+
+    /** Channel backing the mapping */
+    private final FileChannel channel;
+
+    /** Scratch buffer the payload is encoded into before being copied */
+    private final ByteBuffer scratch;
+
+    /** Reused checksum calculator */
+    private final CRC32 crc;
+
+    /** Sequence number of the newest valid slot (0 if none) */
+    private long sequence;
+
+    /** Index of the slot holding the newest valid state (-1 if none) */
+    private int newestSlot;
+
+    /**
+     * Open (creating if needed) the checkpoint file at the given path.
+     * @param path location of the checkpoint file
+     * @throws IOException if the file cannot be opened or mapped
+     */
+    public SessionCheckpoint(Path path) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long fileSize = HEADER_SIZE + 2L * SLOT_SIZE;
+        boolean fresh = this.channel.size() != fileSize;
+        this.mapped = this.channel.map(FileChannel.MapMode.READ_WRITE, 0, fileSize);
+        this.scratch = ByteBuffer.allocate(SLOT_SIZE - SLOT_HEADER_SIZE);
+        this.crc = new CRC32();
+        this.sequence = 0;
+        this.newestSlot = -1;
+
+        if (fresh || this.mapped.getInt(0) != MAGIC || this.mapped.getInt(4) != VERSION
+                || this.mapped.getInt(8) != SLOT_SIZE) {
+            // unknown or outdated layout, start over with two empty slots
+            for (int i = 0; i < HEADER_SIZE + 2 * SLOT_HEADER_SIZE; i++) {
+                this.mapped.put(i, (byte) 0);
+            }
+            this.mapped.putInt(0, MAGIC);
+            this.mapped.putInt(4, VERSION);
+            this.mapped.putInt(8, SLOT_SIZE);
+        }
+        else {
+            for (int slot = 0; slot < 2; slot++) {
+                long slotSequence = this.mapped.getLong(slotOffset(slot));
+                if (slotSequence > this.sequence && isValid(slot)) {
+                    this.sequence = slotSequence;
+                    this.newestSlot = slot;
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the byte offset of a slot within the file
+     * @param slot slot index (0 or 1)
+     * @return offset of the slot header
+     */
+    private static int slotOffset(int slot) {
+        return HEADER_SIZE + slot * SLOT_SIZE;
+    }
+
+    /**
+     * Check whether a slot holds a complete, uncorrupted payload
+     * @param slot slot index (0 or 1)
+     * @return true if the stored checksum matches the stored payload
+     */
+    private boolean isValid(int slot) {
+        int offset = slotOffset(slot);
+        long slotSequence = this.mapped.getLong(offset);
+        int length = this.mapped.getInt(offset + 8);
+        if (slotSequence == 0 || length < 0 || length > SLOT_SIZE - SLOT_HEADER_SIZE) {
+            return false;
+        }
+        ByteBuffer payload = this.mapped.duplicate();
+        payload.position(offset + SLOT_HEADER_SIZE).limit(offset + SLOT_HEADER_SIZE + length);
+        return this.mapped.getInt(offset + 12) == checksum(slotSequence, payload);
+    }
+
+    /**
+     * Compute the checksum covering a slot's sequence number and payload
+     * @param slotSequence sequence number of the slot
+     * @param payload buffer positioned over the payload bytes
+     * @return the checksum
+     */
+    private int checksum(long slotSequence, ByteBuffer payload) {
+        this.crc.reset();
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            this.crc.update((int) (slotSequence >>> shift));
+        }
+        this.crc.update(payload);
+        return (int) this.crc.getValue();
+    }
+
+    /**
+     * Check whether a previously saved state is available
+     * @return true if at least one slot holds a valid state
+     */
+    public boolean hasState() {
+        return this.newestSlot >= 0;
+    }
+
+    /**
+     * Write the current state of a game into the older of the two slots.
+     * If the state does not fit in a slot it is saved without its words,
+     * so a resumed game draws from a fresh shuffle, and if it still does
+     * not fit every saved state is dropped rather than left to be resumed.
+     * @param mode rules the game is played by
+     * @param round round currently being played
+     * @param score points scored so far
+     * @param answerTime total answer time so far
+     * @param recentPoints points scored in each of the most recent rounds
+     * @param recentAnswerTimes answer times of each of the most recent rounds
+     * @param songAnswers songs entered so far
+     * @param words words not yet drawn, in draw order
+     * @param drawnWords a word from each cluster drawn from so far this game
+     * @return true if the state was saved, false if it did not fit in a slot
+     */
+    public boolean save(GameMode mode, int round, int score, int answerTime,
+                        int[] recentPoints, int[] recentAnswerTimes, List<String> songAnswers,
+                        List<String> words, List<String> drawnWords) {
+        if (!encode(mode, round, score, answerTime, recentPoints, recentAnswerTimes,
+                    songAnswers, words, drawnWords)
+                && !encode(mode, round, score, answerTime, recentPoints, recentAnswerTimes,
+                           songAnswers, List.of(), List.of())) {
+            System.err.println("Session too large to checkpoint");
+            this.clear();
+            return false;
+        }
+        this.scratch.flip();
+
+        int slot = this.newestSlot == 0 ? 1 : 0;
+        int offset = slotOffset(slot);
+        long nextSequence = this.sequence + 1;
+
+        // invalidate the slot first so a torn write is never mistaken for new state
+        this.mapped.putLong(offset, 0);
+        this.mapped.putInt(offset + 8, this.scratch.remaining());
+        this.mapped.putInt(offset + 12, checksum(nextSequence, this.scratch.duplicate()));
+        ByteBuffer target = this.mapped.duplicate();
+        target.position(offset + SLOT_HEADER_SIZE);
+        target.put(this.scratch);
+        this.mapped.putLong(offset, nextSequence);
+
+        this.sequence = nextSequence;
+        this.newestSlot = slot;
+        return true;
+    }
+
+    /**
+     * Encode a game's state into the scratch buffer, taking the same
+     * arguments as {@link #save}
+     * @return true if the state fit in the buffer
+     */
+    private boolean encode(GameMode mode, int round, int score, int answerTime,
+                           int[] recentPoints, int[] recentAnswerTimes, List<String> songAnswers,
+                           List<String> words, List<String> drawnWords) {
+        this.scratch.clear();
+        try {
+            putString(mode.getName());
+            this.scratch.putInt(mode.getRoundsPerGame());
+            this.scratch.putInt(mode.getTimePerWord());
+            this.scratch.putInt(round);
+            this.scratch.putInt(score);
+            this.scratch.putInt(answerTime);
+            putInts(recentPoints);
+            putInts(recentAnswerTimes);
+            putStrings(songAnswers);
+            putStrings(words);
+            putStrings(drawnWords);
+        } catch (BufferOverflowException boe) {
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Invalidate both slots, leaving no state to resume.
+     */
+    private void clear() {
+        for (int slot = 0; slot < 2; slot++) {
+            this.mapped.putLong(slotOffset(slot), 0);
+        }
+        this.newestSlot = -1;
+    }
+
+    /**
+     * Copy the newest saved state into a model.
+     * @param model the model to restore
+     * @return true if a valid state was found and restored
+     */
+    public boolean restore(SongAssociationModel model) {
+        if (!hasState()) {
+            return false;
+        }
+        int offset = slotOffset(this.newestSlot);
+        ByteBuffer payload = this.mapped.duplicate();
+        payload.position(offset + SLOT_HEADER_SIZE)
+               .limit(offset + SLOT_HEADER_SIZE + this.mapped.getInt(offset + 8));
+
+        String modeName = getString(payload);
+        GameMode mode = GameMode.of(modeName, payload.getInt(), payload.getInt());
+        int round = payload.getInt();
+        int score = payload.getInt();
+        int answerTime = payload.getInt();
+        int[] recentPoints = getInts(payload);
+        int[] recentAnswerTimes = getInts(payload);
+        ArrayList<String> songAnswers = getStrings(payload);
+        ArrayList<String> words = getStrings(payload);
+        ArrayList<String> drawnWords = getStrings(payload);
+        model.restoreGame(mode, round, score, answerTime, recentPoints, recentAnswerTimes,
+                          songAnswers, words, drawnWords);
+        return true;
+    }
+
+    /**
+     * Encode an array of ints into the scratch buffer
+     * @param ints the ints to encode
+     */
+    private void putInts(int[] ints) {
+        this.scratch.putInt(ints.length);
+        for (int i : ints) {
+            this.scratch.putInt(i);
+        }
+    }
+
+    /**
+     * Encode a list of strings into the scratch buffer
+     * @param strings the strings to encode
+     */
+    private void putStrings(List<String> strings) {
+        this.scratch.putInt(strings.size());
+        for (String s : strings) {
+            putString(s);
+        }
+    }
+
+    /**
+     * Encode a string into the scratch buffer
+     * @param s the string to encode
+     */
+    private void putString(String s) {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        this.scratch.putInt(bytes.length);
+        this.scratch.put(bytes);
+    }
+
+    /**
+     * Decode an array of ints written by {@link #putInts(int[])}
+     * @param payload buffer positioned at the start of the array
+     * @return the decoded ints
+     */
+    private static int[] getInts(ByteBuffer payload) {
+        int[] ints = new int[payload.getInt()];
+        for (int i = 0; i < ints.length; i++) {
+            ints[i] = payload.getInt();
+        }
+        return ints;
+    }
+
+    /**
+     * Decode a list of strings written by {@link #putStrings(List)}
+     * @param payload buffer positioned at the start of the list
+     * @return the decoded strings
+     */
+    private static ArrayList<String> getStrings(ByteBuffer payload) {
+        int count = payload.getInt();
+        ArrayList<String> strings = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            strings.add(getString(payload));
+        }
+        return strings;
+    }
+
+    /**
+     * Decode a string written by {@link #putString(String)}
+     * @param payload buffer positioned at the start of the string
+     * @return the decoded string
+     */
+    private static String getString(ByteBuffer payload) {
+        byte[] bytes = new byte[payload.getInt()];
+        payload.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Flush the mapping to disk and release the file.
+     * @throws IOException if the file cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        this.mapped.force();
+        this.channel.close();
+    }
+}
@@ -0,0 +1,350 @@
+package model;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.*;
+
+/**
+ * Store for paused or idle games that keeps each session as a fixed-width
+ * record in off-heap memory instead of as a live SongAssociationModel.
+ * A model only exists while its session is being played: it is hydrated
+ * from the record when the player comes back and parked into the record
+ * again when they leave.
+ *
+ * Every session draws from one shared, shuffled deck of words, so a record
+ * only needs a cursor into that deck rather than its own list of words,
+ * plus the few words before the cursor that a game passed over to keep
+ * near-duplicates apart and has still to draw. Which clusters a game has
+ * already drawn from is not kept, so a parked game may draw a relative of
+ * a word it drew before it was parked. Neither are the points and answer
+ * times behind the rolling statistics, which would take up most of a
+ * record, so those start over whenever a game is hydrated.
+ * Song answers are kept as ids into a table of distinct answers, which is
+ * shared across sessions. Each answer is counted by the records using it
+ * and dropped from the table once none do, so the table only grows with
+ * the answers of sessions still in the store. The few game modes in use
+ * are kept in a table as well, so a record only holds the id of its mode.
+ *
+ * <pre>
+ * record: mode id | round | score | answer time | draw cursor | #passed over
+ *         | passed over word ids... | #answers | answer ids...
+ * </pre>
+ *
+ * @author Uzo Ukekwe
+ */
+public class SessionStore {
+    /** Byte offsets of each field within a record */
+    private final static int MODE = 0;
+    private final static int ROUND = 4;
+    private final static int SCORE = 8;
+    private final static int ANSWER_TIME = 12;
+    private final static int DRAW_CURSOR = 16;
+    private final static int PASSED_OVER_COUNT = 20;
+    private final static int PASSED_OVER_IDS = 24;
+    private final static int ANSWER_COUNT = PASSED_OVER_IDS + 4 * (SongAssociationModel.MAX_WORDS_SKIPPED - 1);
+    private final static int ANSWER_IDS = ANSWER_COUNT + 4;
+
+    /** Size of one session record in bytes */
+    public final static int RECORD_SIZE = ANSWER_IDS + 4 * SongAssociationModel.ROUNDS_PER_GAME;
+
+    /** Number of records held by each off-heap block */
+    private final static int RECORDS_PER_BLOCK = 1 << 16;
+
+    /** Off-heap blocks holding the session records */
+    private final ArrayList<ByteBuffer> blocks;
+
+    /** Words every session draws from, with their near-duplicate clusters */
+    private final WordClusters corpus;
+
+    /** Ids of the words every session draws from, in draw order */
+    private final int[] deck;
+
+    /** Game modes of the sessions, indexed by mode id */
+    private final ArrayList<GameMode> modes;
+
+    /** Distinct song answers, indexed by answer id */
+    private final ArrayList<String> answers;
+
+    /** Answer id of each distinct song answer */
+    private final HashMap<String, Integer> answerIds;
+
+    /** Number of records using each answer id */
+    private int[] answerRefs;
+
+    /** Answer ids no longer used by any record, to be reused */
+    private int[] freeAnswerIds;
+
+    /** Number of ids in freeAnswerIds */
+    private int freeAnswerCount;
+
+    /** Ids of removed sessions whose records can be reused */
+    private int[] freeIds;
+
+    /** Number of ids in freeIds */
+    private int freeCount;
+
+    /** Number of records handed out so far, including freed ones */
+    private int allocated;
+
+    /** Picks the point in the deck each new session starts drawing from */
+    private final Random random;
+
+    /**
+     * Construct an empty SessionStore.
+     * @param deck shuffled words that every session draws from
+     */
+    public SessionStore(List<String> deck) {
+        this.blocks = new ArrayList<>();
+        this.corpus = WordClusters.analyze(deck);
+        this.deck = deck.stream().mapToInt(this.corpus::idOf).toArray();
+        this.modes = new ArrayList<>();
+        this.answers = new ArrayList<>();
+        this.answerIds = new HashMap<>();
+        this.answerRefs = new int[16];
+        this.freeAnswerIds = new int[16];
+        this.freeAnswerCount = 0;
+        this.freeIds = new int[16];
+        this.freeCount = 0;
+        this.allocated = 0;
+        this.random = new Random();
+    }
+
+    /**
+     * Construct an empty SessionStore whose deck is read from the words file.
+     */
+    public SessionStore() {
+        this(SongAssociationModel.generateWords());
+    }
+
+    /**
+     * Get the block holding a session's record
+     * @param id id of the session
+     * @return the block containing the record
+     */
+    private ByteBuffer block(int id) {
+        return this.blocks.get(id / RECORDS_PER_BLOCK);
+    }
+
+    /**
+     * Get the offset of a session's record within its block
+     * @param id id of the session
+     * @return the offset of the record
+     */
+    private static int offset(int id) {
+        return (id % RECORDS_PER_BLOCK) * RECORD_SIZE;
+    }
+
+    /**
+     * Create a session for a new game.
+     * @return id of the new session
+     */
+    public int create() {
+        int id;
+        if (this.freeCount > 0) {
+            id = this.freeIds[--this.freeCount];
+        }
+        else {
+            id = this.allocated++;
+            if (id / RECORDS_PER_BLOCK == this.blocks.size()) {
+                this.blocks.add(ByteBuffer.allocateDirect(RECORDS_PER_BLOCK * RECORD_SIZE)
+                                          .order(ByteOrder.nativeOrder()));
+            }
+        }
+
+        ByteBuffer block = block(id);
+        int offset = offset(id);
+        block.putInt(offset + MODE, modeId(GameMode.CLASSIC));
+        block.putInt(offset + ROUND, 1);
+        block.putInt(offset + SCORE, 0);
+        block.putInt(offset + ANSWER_TIME, 0);
+        block.putInt(offset + DRAW_CURSOR, this.random.nextInt(this.deck.length));
+        block.putInt(offset + PASSED_OVER_COUNT, 0);
+        block.putInt(offset + ANSWER_COUNT, 0);
+        return id;
+    }
+
+    /**
+     * Check whether an id belongs to a session in this store
+     * @param id id of the session
+     * @return true if the session exists
+     */
+    public boolean contains(int id) {
+        return id >= 0 && id < this.allocated && block(id).getInt(offset(id) + ROUND) != 0;
+    }
+
+    /**
+     * Build a live model for a session so it can be played.
+     * @param id id of the session
+     * @return a model holding the session's game
+     */
+    public SongAssociationModel hydrate(int id) {
+        checkSession(id);
+        ByteBuffer block = block(id);
+        int offset = offset(id);
+
+        int[] passedOver = new int[block.getInt(offset + PASSED_OVER_COUNT)];
+        for (int i = 0; i < passedOver.length; i++) {
+            passedOver[i] = block.getInt(offset + PASSED_OVER_IDS + 4 * i);
+        }
+        SongAssociationModel model = new SongAssociationModel(this.corpus, this.deck,
+                block.getInt(offset + DRAW_CURSOR), passedOver);
+
+        int answerCount = block.getInt(offset + ANSWER_COUNT);
+        ArrayList<String> songAnswers = new ArrayList<>(answerCount);
+        for (int i = 0; i < answerCount; i++) {
+            songAnswers.add(this.answers.get(block.getInt(offset + ANSWER_IDS + 4 * i)));
+        }
+        model.restoreGame(this.modes.get(block.getInt(offset + MODE)),
+                block.getInt(offset + ROUND), block.getInt(offset + SCORE),
+                block.getInt(offset + ANSWER_TIME), new int[0], new int[0], songAnswers,
+                new ArrayList<>(), new ArrayList<>());
+        return model;
+    }
+
+    /**
+     * Pack a live model back into its session's record. The model should
+     * not be used afterwards.
+     * @param id id of the session
+     * @param model the model previously returned by hydrate
+     */
+    public void park(int id, SongAssociationModel model) {
+        checkSession(id);
+        ByteBuffer block = block(id);
+        int offset = offset(id);
+
+        // the model draws through its copy of the deck in place, so the words it
+        // has left are the ones it passed over followed by the rest of the deck
+        int[] passedOver = model.passedOverWords();
+        // long games keep more answers than a record has room for
+        List<String> songAnswers = model.getSongAnswers();
+        songAnswers = songAnswers.subList(
+                Math.max(0, songAnswers.size() - SongAssociationModel.ROUNDS_PER_GAME),
+                songAnswers.size());
+
+        // take the new answers before letting go of the old, as most are the same
+        int[] oldIds = answerIdsOf(id);
+        block.putInt(offset + MODE, modeId(model.getMode()));
+        block.putInt(offset + ROUND, model.getCurrentRound());
+        block.putInt(offset + SCORE, model.getCurrentScore());
+        block.putInt(offset + ANSWER_TIME, model.getTotalAnswerTime());
+        block.putInt(offset + DRAW_CURSOR, model.deckCursor());
+        block.putInt(offset + PASSED_OVER_COUNT, passedOver.length);
+        for (int i = 0; i < passedOver.length; i++) {
+            block.putInt(offset + PASSED_OVER_IDS + 4 * i, passedOver[i]);
+        }
+        block.putInt(offset + ANSWER_COUNT, songAnswers.size());
+        for (int i = 0; i < songAnswers.size(); i++) {
+            block.putInt(offset + ANSWER_IDS + 4 * i, acquireAnswer(songAnswers.get(i)));
+        }
+        for (int answerId : oldIds) {
+            releaseAnswer(answerId);
+        }
+    }
+
+    /**
+     * Remove a session, freeing its record for reuse.
+     * @param id id of the session
+     */
+    public void remove(int id) {
+        checkSession(id);
+        for (int answerId : answerIdsOf(id)) {
+            releaseAnswer(answerId);
+        }
+        block(id).putInt(offset(id) + ANSWER_COUNT, 0);
+        block(id).putInt(offset(id) + ROUND, 0);
+        if (this.freeCount == this.freeIds.length) {
+            this.freeIds = Arrays.copyOf(this.freeIds, this.freeCount * 2);
+        }
+        this.freeIds[this.freeCount++] = id;
+    }
+
+    /**
+     * Get the number of sessions in this store
+     * @return the number of sessions
+     */
+    public int size() {
+        return this.allocated - this.freeCount;
+    }
+
+    /**
+     * Get the id of a game mode, assigning one if it is new
+     * @param mode the game mode
+     * @return the id of the mode
+     */
+    private int modeId(GameMode mode) {
+        int id = this.modes.indexOf(mode);
+        if (id < 0) {
+            id = this.modes.size();
+            this.modes.add(mode);
+        }
+        return id;
+    }
+
+    /**
+     * Get the ids of the answers in a session's record
+     * @param id id of the session
+     * @return the answer ids, in order
+     */
+    private int[] answerIdsOf(int id) {
+        ByteBuffer block = block(id);
+        int offset = offset(id);
+        int[] ids = new int[block.getInt(offset + ANSWER_COUNT)];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = block.getInt(offset + ANSWER_IDS + 4 * i);
+        }
+        return ids;
+    }
+
+    /**
+     * Get the id of a song answer for one more use in a record, assigning
+     * one if the answer is not in the table
+     * @param song the song answer
+     * @return the id of the answer
+     */
+    private int acquireAnswer(String song) {
+        Integer id = this.answerIds.get(song);
+        if (id == null) {
+            if (this.freeAnswerCount > 0) {
+                id = this.freeAnswerIds[--this.freeAnswerCount];
+                this.answers.set(id, song);
+            }
+            else {
+                id = this.answers.size();
+                this.answers.add(song);
+                if (id == this.answerRefs.length) {
+                    this.answerRefs = Arrays.copyOf(this.answerRefs, id * 2);
+                }
+            }
+            this.answerIds.put(song, id);
+        }
+        this.answerRefs[id] += 1;
+        return id;
+    }
+
+    /**
+     * Give up one use of an answer, dropping it from the table once no
+     * record uses it
+     * @param id id of the answer
+     */
+    private void releaseAnswer(int id) {
+        this.answerRefs[id] -= 1;
+        if (this.answerRefs[id] == 0) {
+            this.answerIds.remove(this.answers.get(id));
+            this.answers.set(id, null);
+            if (this.freeAnswerCount == this.freeAnswerIds.length) {
+                this.freeAnswerIds = Arrays.copyOf(this.freeAnswerIds, this.freeAnswerCount * 2);
+            }
+            this.freeAnswerIds[this.freeAnswerCount++] = id;
+        }
+    }
+
+    /**
+     * Make sure an id belongs to a session in this store
+     * @param id id of the session
+     */
+    private void checkSession(int id) {
+        if (!contains(id)) {
+            throw new NoSuchElementException("No session with id " + id);
+        }
+    }
+}
@@ -1,9 +1,10 @@
 package model;
 
-import java.io.BufferedReader;
-import java.io.FileReader;
 import java.io.IOException;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * Definition for the model of a song association game.
@@ -14,26 +15,62 @@ public class SongAssociationModel {
     /** The objects that are watching this object */
     private final List< Observer< SongAssociationModel, Object > > observers;
 
-    /** Number of rounds played during each game */
+    /** Number of rounds played during each classic game */
     public final static int ROUNDS_PER_GAME = 15;
 
+    /** Number of most recent rounds covered by the rolling statistics */
+    public final static int RECENT_ROUNDS = 50;
+
     /** File containing words used during game */
     private final static String WORDS_FILE = "data/words.txt";
 
-    /** Words used to prompt the user during each round */
-    private ArrayList<String> words;
+    /** Binary snapshot of the words file, reused until the words file changes */
+    private final static String SNAPSHOT_FILE = "data/words.snapshot";
+
+    /** Most words looked at to find one unrelated to the words already drawn */
+    final static int MAX_WORDS_SKIPPED = 32;
+
+    /** Words used to prompt the user, with their near-duplicate clusters (null until loaded) */
+    private WordClusters corpus;
+
+    /** Ids of the words in draw order; the ones before nextDraw have been drawn */
+    private int[] draws;
+
+    /** Position in draws of the next word to draw */
+    private int nextDraw;
+
+    /**
+     * Position in draws of the first word nothing has been drawn past, so
+     * the words from nextDraw up to here were passed over for related ones
+     */
+    private int freshDraw;
+
+    /** Word ids drawn again, in order, once draws runs out (null to shuffle the corpus) */
+    private final int[] deck;
+
+    /** Corpus being loaded in the background (null once loaded) */
+    private CompletableFuture<WordClusters> loading;
+
+    /** Words of a restored game not yet drawn, kept until the corpus is loaded */
+    private ArrayList<String> restoredWords;
+
+    /** A word from each cluster drawn from in a restored game, kept until the corpus is loaded */
+    private ArrayList<String> restoredDrawn;
+
+    /** Clusters of the words already drawn in the current game */
+    private final BitSet usedClusters;
 
     /** Total amount of time taken to answer each prompt in one game */
     private int totalAnswerTime;
 
-    /** Total amounts of times taken to play each game in one session */
-    private final ArrayList<Integer> allTotalAnswerTimes;
+    /** Sum of the total answer times of every game in one session */
+    private long sumOfTotalAnswerTimes;
 
     /** Current amount of points scored in current game */
     private int pointsScored;
 
-    /** All final scores from the current session */
-    private final ArrayList<Integer> allScores;
+    /** Sum of the final scores of every game in the current session */
+    private long totalPointsScored;
 
     /** Average of all final scores from the current session */
     private int averageScore;
@@ -44,38 +81,120 @@ public class SongAssociationModel {
     /** Number of games played in the current session */
     private int gamesPlayed;
 
-    /** Songs input by user */
+    /** Songs input by user (only the most recent ones in long games) */
     private ArrayList<String> songAnswers;
 
+    /** Points scored in each of the most recent rounds */
+    private final RollingWindow recentPoints;
+
+    /** Answer times of each of the most recent rounds */
+    private final RollingWindow recentAnswerTimes;
+
+    /** Rules deciding the length of a game and time per round */
+    private GameMode mode;
+
     /** Current round being played by the user */
     private int currentRound;
 
+    /** Screens answers before they are added to the mix (null if not screened) */
+    private AnswerModerator moderator;
+
+    /** Where the current game is saved after each round (null if not saved) */
+    private SessionCheckpoint checkpoint;
+
     /**
      * Construct a SongAssociationModel.
      */
     public SongAssociationModel() {
+        this(generateWords());
+    }
+
+    /**
+     * Construct a SongAssociationModel whose words are still being loaded,
+     * so that it can be created without waiting on the words file. The
+     * first round waits for them if they are not ready by then.
+     * @param words completes with the words to draw from, in draw order
+     */
+    public SongAssociationModel(CompletableFuture<ArrayList<String>> words) {
+        this(null, null, null);
+        this.loading = words.thenApply(WordClusters::analyze);
+    }
+
+    /**
+     * Construct a SongAssociationModel that draws from an already loaded
+     * list of words instead of reading the words file, shuffling them
+     * once they have all been drawn.
+     * @param words words to draw from, in draw order
+     */
+    SongAssociationModel(ArrayList<String> words) {
+        this(WordClusters.analyze(words), null, null);
+        this.draws = ids(this.corpus, words);
+    }
+
+    /**
+     * Construct a SongAssociationModel that draws from a fixed deck of
+     * words, starting over from the top of the deck whenever it runs out.
+     * @param corpus the words the deck's ids belong to
+     * @param deck ids of the words to draw from, in draw order
+     * @param cursor position in the deck of the first word not yet looked at
+     * @param passedOver ids of words before the cursor that were passed over
+     *                   and are still to be drawn, in draw order
+     */
+    SongAssociationModel(WordClusters corpus, int[] deck, int cursor, int[] passedOver) {
+        this(corpus, deck, deck.clone());
+        // the drawn words before the cursor make room for the ones passed over
+        this.freshDraw = cursor;
+        this.nextDraw = cursor - passedOver.length;
+        System.arraycopy(passedOver, 0, this.draws, this.nextDraw, passedOver.length);
+    }
+
+    /**
+     * Construct a SongAssociationModel; see the other constructors.
+     * @param corpus the words drawn from (null if still loading)
+     * @param deck word ids drawn again once draws run out (null to shuffle the corpus)
+     * @param draws word ids to draw first, in draw order (null for none)
+     */
+    private SongAssociationModel(WordClusters corpus, int[] deck, int[] draws) {
         this.observers = new LinkedList<>();
-        this.words = generateWords();
-        this.allTotalAnswerTimes = new ArrayList<>();
-        this.allScores = new ArrayList<>();
+        this.corpus = corpus;
+        this.deck = deck;
+        this.draws = draws != null ? draws : new int[0];
+        this.nextDraw = 0;
+        this.freshDraw = 0;
+        this.usedClusters = new BitSet();
+        this.sumOfTotalAnswerTimes = 0;
+        this.totalPointsScored = 0;
         this.gamesPlayed = 0;
+        this.recentPoints = new RollingWindow(RECENT_ROUNDS);
+        this.recentAnswerTimes = new RollingWindow(RECENT_ROUNDS);
+        this.mode = GameMode.CLASSIC;
         this.reset();
     }
 
+    /**
+     * Run an action once the words being loaded in the background are ready
+     * (right away if none are being loaded)
+     * @param action the action to run
+     */
+    public void whenWordsLoaded(Runnable action) {
+        if (this.loading == null) {
+            action.run();
+        }
+        else {
+            this.loading.whenComplete((corpus, error) -> action.run());
+        }
+    }
+
     /**
      * Generate the list of words that will be randomly revealed to the user
      * @return the list of words to be used
      */
-    private ArrayList<String> generateWords() {
+    public static ArrayList<String> generateWords() {
         ArrayList<String> words = new ArrayList<>();
 
-        // read in words from resource file line by line
-        try (BufferedReader in = new BufferedReader(new FileReader(WORDS_FILE))) {
-            String newWord = in.readLine();
-            while (newWord != null) {
-                words.add(newWord);
-                newWord = in.readLine();
-            }
+        // read in words from the snapshot of the resource file, or the file itself
+        try {
+            words = CorpusSnapshot.load(Path.of(WORDS_FILE), Path.of(SNAPSHOT_FILE));
             Collections.shuffle(words);
         } catch (IOException ioe) {
             System.err.println(ioe.getMessage());
@@ -93,17 +212,201 @@ public class SongAssociationModel {
         this.pointsScored = 0;
         this.songAnswers =  new ArrayList<>();
         this.currentRound = 1;
+        this.recentPoints.clear();
+        this.recentAnswerTimes.clear();
+        this.usedClusters.clear();
+        this.restoredDrawn = null;
+        this.saveCheckpoint();
+    }
+
+    /**
+     * Get the ids of a list of words
+     * @param corpus the words the ids belong to
+     * @param words the words
+     * @return their ids, in order, leaving out words not in the corpus
+     */
+    private static int[] ids(WordClusters corpus, List<String> words) {
+        return words.stream().mapToInt(corpus::idOf).filter(id -> id >= 0).toArray();
+    }
+
+    /**
+     * Save the current game after every round and resume from any game
+     * previously saved there.
+     * @param checkpoint checkpoint file for this session
+     */
+    public void useCheckpoint(SessionCheckpoint checkpoint) {
+        this.checkpoint = checkpoint;
+        if (!checkpoint.restore(this)) {
+            this.saveCheckpoint();
+        }
+    }
+
+    /**
+     * Overwrite the current game with a previously saved one.
+     * @param mode rules the game was played by
+     * @param round round that was being played
+     * @param score points scored so far
+     * @param answerTime total answer time so far
+     * @param recentPoints points scored in each of the most recent rounds, oldest first
+     * @param recentAnswerTimes answer times of each of the most recent rounds, oldest first
+     * @param songAnswers songs entered so far
+     * @param remainingWords words not yet drawn, in draw order
+     * @param drawnWords a word from each cluster drawn from so far
+     */
+    void restoreGame(GameMode mode, int round, int score, int answerTime,
+                     int[] recentPoints, int[] recentAnswerTimes, ArrayList<String> songAnswers,
+                     ArrayList<String> remainingWords, ArrayList<String> drawnWords) {
+        // the mode decides whether the game is over, so it comes back first
+        this.mode = mode;
+        boolean finished = this.mode.isGameOver(round - 1);
+        // a finished game is not resumed, but its word order is kept
+        this.restoredWords = remainingWords.isEmpty() ? null : remainingWords;
+        this.restoredDrawn = finished ? null : drawnWords;
+        if (this.corpus != null) {
+            this.applyRestoredWords();
+        }
+        if (finished) {
+            this.reset();
+            return;
+        }
+        this.currentRound = round;
+        this.pointsScored = score;
+        this.totalAnswerTime = answerTime;
+        this.songAnswers = songAnswers;
+        this.recentPoints.clear();
+        this.recentAnswerTimes.clear();
+        for (int points : recentPoints) {
+            this.recentPoints.add(points);
+        }
+        for (int time : recentAnswerTimes) {
+            this.recentAnswerTimes.add(time);
+        }
+    }
+
+    /**
+     * Put the words of a restored game in place, now that the corpus is loaded.
+     */
+    private void applyRestoredWords() {
+        if (this.restoredWords != null) {
+            this.draws = ids(this.corpus, this.restoredWords);
+            this.nextDraw = 0;
+            this.freshDraw = 0;
+        }
+        if (this.restoredDrawn != null) {
+            for (int id : ids(this.corpus, this.restoredDrawn)) {
+                this.usedClusters.set(this.corpus.clusterOf(id));
+            }
+        }
+        this.restoredWords = null;
+        this.restoredDrawn = null;
+    }
+
+    /**
+     * Get the words not yet drawn
+     * @return the words, in draw order
+     */
+    private ArrayList<String> remainingWords() {
+        if (this.corpus == null) {
+            return this.restoredWords != null ? this.restoredWords : new ArrayList<>();
+        }
+        ArrayList<String> words = new ArrayList<>(this.draws.length - this.nextDraw);
+        for (int i = this.nextDraw; i < this.draws.length; i++) {
+            words.add(this.corpus.getWord(this.draws[i]));
+        }
+        return words;
+    }
+
+    /**
+     * Get a word from each cluster drawn from so far this game
+     * @return the words, one per cluster
+     */
+    private ArrayList<String> drawnWords() {
+        if (this.corpus == null) {
+            return this.restoredDrawn != null ? this.restoredDrawn : new ArrayList<>();
+        }
+        ArrayList<String> words = new ArrayList<>(this.usedClusters.cardinality());
+        for (int cluster = this.usedClusters.nextSetBit(0); cluster >= 0;
+             cluster = this.usedClusters.nextSetBit(cluster + 1)) {
+            words.add(this.corpus.getWord(this.corpus.firstWordOf(cluster)));
+        }
+        return words;
+    }
+
+    /**
+     * Write the current game to the checkpoint file, if there is one.
+     */
+    private void saveCheckpoint() {
+        if (this.checkpoint != null) {
+            this.checkpoint.save(this.mode, this.currentRound, this.pointsScored,
+                    this.totalAnswerTime, this.recentPoints.toArray(),
+                    this.recentAnswerTimes.toArray(), this.songAnswers, this.remainingWords(), this.drawnWords());
+        }
     }
 
     /**
      * Start a new round.
      */
     public void startRound() {
-        if (this.words.isEmpty()) {
-            this.words = this.generateWords();
+        if (this.corpus == null) {
+            this.corpus = this.loading.join();
+            this.loading = null;
+            this.refillDraws();
+            this.applyRestoredWords();
+        }
+        if (this.nextDraw == this.draws.length) {
+            this.refillDraws();
         }
-        String currentWord = this.words.remove(0);
-        announce("word:" + currentWord);
+        announce("word:" + this.corpus.getWord(this.drawWord()));
+    }
+
+    /**
+     * Start drawing from the top of the deck again, or from a fresh
+     * shuffle of the corpus if there is no deck
+     */
+    private void refillDraws() {
+        if (this.deck != null) {
+            this.draws = this.deck.clone();
+        }
+        else {
+            this.draws = new int[this.corpus.getWordCount()];
+            Random random = ThreadLocalRandom.current();
+            for (int i = 0; i < this.draws.length; i++) {
+                int j = random.nextInt(i + 1);
+                this.draws[i] = this.draws[j];
+                this.draws[j] = i;
+            }
+        }
+        this.nextDraw = 0;
+        this.freshDraw = 0;
+    }
+
+    /**
+     * Draw the next word, passing over words related to one already drawn
+     * this game as long as an unrelated one is close to the front
+     * @return id of the word drawn
+     */
+    private int drawWord() {
+        int limit = Math.min(this.draws.length, this.nextDraw + MAX_WORDS_SKIPPED);
+        int pick = -1;
+        for (int i = this.nextDraw; i < limit && pick < 0; i++) {
+            if (!this.usedClusters.get(this.corpus.clusterOf(this.draws[i]))) {
+                pick = i;
+            }
+        }
+        // every word nearby is related to one drawn before, so start over
+        if (pick < 0) {
+            this.usedClusters.clear();
+            pick = this.nextDraw;
+        }
+        int word = this.draws[pick];
+        this.usedClusters.set(this.corpus.clusterOf(word));
+
+        // words passed over move back one place to stay at the front
+        System.arraycopy(this.draws, this.nextDraw, this.draws, this.nextDraw + 1, pick - this.nextDraw);
+        this.draws[this.nextDraw] = word;
+        this.nextDraw += 1;
+        this.freshDraw = Math.max(this.freshDraw, pick + 1);
+        return word;
     }
 
     /**
@@ -116,35 +419,92 @@ public class SongAssociationModel {
         this.currentRound += 1;
         this.totalAnswerTime += answerTime;
 
+        this.recentAnswerTimes.add(answerTime);
+
         // user entered an artist and song title in time
         if (song != null) {
-            this.songAnswers.add(song);
+            // blocked answers still score but are kept out of the mix
+            if (this.moderator == null || !this.moderator.isBlocked(song)) {
+                // long games only keep the most recent answers
+                if (this.songAnswers.size() == RECENT_ROUNDS) {
+                    this.songAnswers.remove(0);
+                }
+                this.songAnswers.add(song);
+            }
             this.pointsScored += 1;
         }
+        this.recentPoints.add(song != null ? 1 : 0);
+        this.saveCheckpoint();
 
         // current game is over
-        if (this.currentRound > ROUNDS_PER_GAME) {
-            // values that will also be used to calculate averages
-            this.allScores.add(this.pointsScored);
-            this.allTotalAnswerTimes.add(this.totalAnswerTime);
-            this.gamesPlayed += 1;
-
-            // user metrics that involve multiple calculations
-            // average score
-            int totalPointsScored = 0;
-            for (int score : this.allScores) {
-                totalPointsScored += score;
-            }
-            this.averageScore = totalPointsScored / this.gamesPlayed;
-            // average time
-            int sumOfTotalAnswerTimes = 0;
-            for (int totalAnswerTime : this.allTotalAnswerTimes) {
-                sumOfTotalAnswerTimes += totalAnswerTime;
-            }
-            this.averageTotalTime = sumOfTotalAnswerTimes / this.gamesPlayed;
+        if (this.isGameOver()) {
+            this.endGame();
+        }
+    }
 
-            announce(null);
+    /**
+     * End the current game, e.g. when the user stops an endless game.
+     */
+    public void endGame() {
+        // running totals used to calculate averages
+        this.totalPointsScored += this.pointsScored;
+        this.sumOfTotalAnswerTimes += this.totalAnswerTime;
+        this.gamesPlayed += 1;
+
+        this.averageScore = (int) (this.totalPointsScored / this.gamesPlayed);
+        this.averageTotalTime = (int) (this.sumOfTotalAnswerTimes / this.gamesPlayed);
+
+        // leave nothing to resume, even when the mode would let the game go on
+        if (this.checkpoint != null) {
+            this.checkpoint.save(this.mode, 1, 0, 0, new int[0], new int[0], new ArrayList<>(),
+                                 this.remainingWords(), new ArrayList<>());
         }
+
+        announce(null);
+    }
+
+    /**
+     * Check whether the current game has played all of its rounds
+     * @return true if the game is over
+     */
+    public boolean isGameOver() {
+        return this.mode.isGameOver(this.currentRound - 1);
+    }
+
+    /**
+     * Change the rules used from the next game on
+     * @param mode the new game mode
+     */
+    public void setMode(GameMode mode) {
+        this.mode = mode;
+    }
+
+    /**
+     * Screen every answer from now on before adding it to the mix
+     * @param moderator moderator holding the blocklist
+     */
+    public void setModerator(AnswerModerator moderator) {
+        this.moderator = moderator;
+    }
+
+    public GameMode getMode() {
+        return this.mode;
+    }
+
+    /**
+     * Get the points scored over the most recent rounds of this game
+     * @return the points scored in the last RECENT_ROUNDS rounds
+     */
+    public int getRecentScore() {
+        return (int) this.recentPoints.getSum();
+    }
+
+    /**
+     * Get the average answer time over the most recent rounds of this game
+     * @return the average time, in seconds, of the last RECENT_ROUNDS rounds
+     */
+    public int getRecentAverageTime() {
+        return this.recentAnswerTimes.getAverage();
     }
 
     public int getCurrentRound() {
@@ -169,6 +529,23 @@ public class SongAssociationModel {
         return this.songAnswers;
     }
 
+    /**
+     * Get how far through its deck this model has looked
+     * @return position in the deck of the first word nothing was drawn past
+     */
+    int deckCursor() {
+        return this.freshDraw;
+    }
+
+    /**
+     * Get the words before the deck cursor that were passed over for ones
+     * unrelated to earlier draws and have yet to be drawn
+     * @return their ids, in draw order (fewer than MAX_WORDS_SKIPPED)
+     */
+    int[] passedOverWords() {
+        return Arrays.copyOfRange(this.draws, this.nextDraw, this.freshDraw);
+    }
+
     /**
      * Add a new observer to the list for this model
      * @param obs an object that an update when something changes here
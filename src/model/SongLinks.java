@@ -0,0 +1,61 @@
+package model;
+
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Builds search links for a song answer on the services the mix links to.
+ *
+ * @author Uzo Ukekwe
+ */
+public final class SongLinks {
+    /** Separator between the artist and the title in a song answer */
+    public final static String SEPARATOR = " - ";
+
+    /** Start of every YouTube search link */
+    private final static String YOUTUBE_SEARCH = "https://www.youtube.com/results?search_query=";
+
+    /** Start of every Spotify search link */
+    private final static String SPOTIFY_SEARCH = "https://open.spotify.com/search/";
+
+    private SongLinks() {}
+
+    /**
+     * Get the YouTube search link for a song
+     * @param song the song answer
+     * @return the link, with the song encoded as a query parameter
+     */
+    public static String youtube(String song) {
+        return YOUTUBE_SEARCH + URLEncoder.encode(song, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Get the Spotify search link for a song
+     * @param song the song answer
+     * @return the link, with the song encoded as a path segment
+     */
+    public static String spotify(String song) {
+        // spaces in a path segment are %20; a literal + is already %2B
+        return SPOTIFY_SEARCH + URLEncoder.encode(song, StandardCharsets.UTF_8).replace("+", "%20");
+    }
+
+    /**
+     * Get the artist of a song answer
+     * @param song the song answer, as "artist - title"
+     * @return the artist (the whole answer if there is no separator)
+     */
+    public static String artist(String song) {
+        int separator = song.indexOf(SEPARATOR);
+        return separator < 0 ? song : song.substring(0, separator);
+    }
+
+    /**
+     * Get the title of a song answer
+     * @param song the song answer, as "artist - title"
+     * @return the title (empty if there is no separator)
+     */
+    public static String title(String song) {
+        int separator = song.indexOf(SEPARATOR);
+        return separator < 0 ? "" : song.substring(separator + SEPARATOR.length());
+    }
+}
@@ -0,0 +1,373 @@
+package model;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Stream;
+
+/**
+ * Index of known songs featuring each word of the corpus, shown to the
+ * user when they run out of time. The index is built offline from a
+ * lyrics dataset and saved to a memory-mapped file, so looking up a word
+ * at runtime is a single table read with no searching.
+ *
+ * The dataset is a UTF-8 text file with one song per line, given as
+ * artist, title and lyrics separated by tabs. For each word, the songs
+ * which repeat it the most are kept.
+ *
+ * <pre>
+ * header: magic (int) | version (int) | #words (int) | reserved (int)
+ * table:  offset of each word's entry (int), plus the end of the last one
+ * entry:  word | #songs (int) | songs...
+ * </pre>
+ *
+ * Strings are stored as a length-prefixed run of UTF-8 bytes.
+ *
+ * @author Uzo Ukekwe
+ */
+public class SongSuggestions {
+    /** Identifies a suggestions file ("SASG") */
+    private final static int MAGIC = 0x53415347;
+
+    /** Layout version, bumped whenever the format changes */
+    private final static int VERSION = 1;
+
+    /** Size of the file header in bytes */
+    private final static int HEADER_SIZE = 16;
+
+    /** Number of songs kept for each word when none is given */
+    public final static int DEFAULT_SONGS_PER_WORD = 3;
+
+    /** Mapping of the whole suggestions file */
+    private final MappedByteBuffer index;
+
+    /** Id of each word, i.e. its position in the table */
+    private final HashMap<String, Integer> wordIds;
+
+    /**
+     * Open a suggestions file.
+     * @param path the file written by build
+     * @throws IOException if the file cannot be read or is not a suggestions file
+     */
+    public SongSuggestions(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            this.index = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (this.index.limit() < HEADER_SIZE || this.index.getInt(0) != MAGIC
+                || this.index.getInt(4) != VERSION) {
+            throw new IOException(path + " is not a song suggestions file");
+        }
+
+        // every entry is read once here, so lookups never run into a damaged one
+        int wordCount = this.index.getInt(8);
+        int tableEnd = HEADER_SIZE + 4 * (wordCount + 1);
+        if (wordCount < 0 || wordCount > (this.index.limit() - HEADER_SIZE) / 4 - 1
+                || this.index.getInt(HEADER_SIZE) != tableEnd
+                || this.index.getInt(tableEnd - 4) != this.index.limit()) {
+            throw new IOException(path + " is damaged");
+        }
+        this.wordIds = new HashMap<>(wordCount * 2);
+        try {
+            for (int id = 0; id < wordCount; id++) {
+                ByteBuffer entry = this.entry(id);
+                this.wordIds.put(getString(entry), id);
+                int songs = entry.getInt();
+                if (songs < 0) {
+                    throw new IOException(path + " is damaged");
+                }
+                for (int i = 0; i < songs; i++) {
+                    getString(entry);
+                }
+            }
+        } catch (BufferUnderflowException | IllegalArgumentException | NegativeArraySizeException e) {
+            throw new IOException(path + " is damaged", e);
+        }
+    }
+
+    /**
+     * Get a view of one word's entry
+     * @param id id of the word
+     * @return buffer positioned at the start of the entry
+     * @throws IllegalArgumentException if the table points outside the file
+     */
+    private ByteBuffer entry(int id) {
+        ByteBuffer entry = this.index.duplicate();
+        entry.position(this.index.getInt(HEADER_SIZE + 4 * id))
+             .limit(this.index.getInt(HEADER_SIZE + 4 * (id + 1)));
+        return entry;
+    }
+
+    /**
+     * Get the songs featuring a word
+     * @param word a word from the corpus
+     * @return the songs, as "artist - title", best first (empty if none are known)
+     */
+    public List<String> suggestionsFor(String word) {
+        Integer id = this.wordIds.get(word.toLowerCase(Locale.ROOT));
+        if (id == null) {
+            return List.of();
+        }
+        ByteBuffer entry = this.entry(id);
+        getString(entry);
+        int count = entry.getInt();
+        List<String> songs = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            songs.add(getString(entry));
+        }
+        return songs;
+    }
+
+    /**
+     * Read a length-prefixed string
+     * @param buffer buffer positioned at the string
+     * @return the string
+     */
+    private static String getString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length > buffer.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Build a suggestions file from a lyrics dataset. Songs are read and
+     * matched against the corpus in parallel; only the best songs of each
+     * word are ever kept in memory.
+     * @param dataset lyrics dataset, one tab-separated song per line
+     * @param corpus words to find songs for
+     * @param songsPerWord most songs kept for each word
+     * @param output where to write the suggestions file
+     * @throws IOException if the dataset cannot be read or the file written
+     */
+    public static void build(Path dataset, List<String> corpus, int songsPerWord,
+                             Path output) throws IOException {
+        LinkedHashSet<String> distinct = new LinkedHashSet<>();
+        for (String word : corpus) {
+            distinct.add(word.toLowerCase(Locale.ROOT));
+        }
+        List<String> words = new ArrayList<>(distinct);
+        HashMap<String, Integer> wordIds = new HashMap<>();
+        for (int id = 0; id < words.size(); id++) {
+            wordIds.put(words.get(id), id);
+        }
+
+        TopSongs best;
+        try (Stream<String> songs = Files.lines(dataset, StandardCharsets.UTF_8)) {
+            best = songs.parallel().collect(
+                    () -> new TopSongs(words.size(), songsPerWord),
+                    (top, line) -> top.addSong(line, wordIds),
+                    TopSongs::merge);
+        }
+        write(output, words, best);
+    }
+
+    /**
+     * Write a suggestions file, replacing any previous one at once
+     * @param output where to write the file
+     * @param words the corpus, by word id
+     * @param best the songs kept for each word
+     * @throws IOException if the file cannot be written
+     */
+    private static void write(Path output, List<String> words, TopSongs best) throws IOException {
+        List<byte[]> entries = new ArrayList<>(words.size());
+        int offset = HEADER_SIZE + 4 * (words.size() + 1);
+        for (int id = 0; id < words.size(); id++) {
+            List<String> songs = best.songsFor(id);
+            List<byte[]> strings = new ArrayList<>();
+            strings.add(words.get(id).getBytes(StandardCharsets.UTF_8));
+            for (String song : songs) {
+                strings.add(song.getBytes(StandardCharsets.UTF_8));
+            }
+            int length = 4;
+            for (byte[] string : strings) {
+                length += 4 + string.length;
+            }
+            ByteBuffer entry = ByteBuffer.allocate(length);
+            entry.putInt(strings.get(0).length).put(strings.get(0)).putInt(songs.size());
+            for (byte[] string : strings.subList(1, strings.size())) {
+                entry.putInt(string.length).put(string);
+            }
+            entries.add(entry.array());
+        }
+
+        ByteBuffer table = ByteBuffer.allocate(HEADER_SIZE + 4 * (words.size() + 1));
+        table.putInt(MAGIC).putInt(VERSION).putInt(words.size()).putInt(0);
+        for (byte[] entry : entries) {
+            table.putInt(offset);
+            offset += entry.length;
+        }
+        table.putInt(offset);
+        table.flip();
+
+        Path temporary = output.resolveSibling(output.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (table.hasRemaining()) {
+                channel.write(table);
+            }
+            for (byte[] entry : entries) {
+                ByteBuffer buffer = ByteBuffer.wrap(entry);
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            }
+        }
+        Files.move(temporary, output, StandardCopyOption.REPLACE_EXISTING,
+                   StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * The songs which feature each word the most, for part of a dataset.
+     */
+    private static class TopSongs {
+        /** Most songs kept for each word */
+        private final int songsPerWord;
+
+        /** Songs kept for each word, as "artist - title", best first */
+        private final String[][] songs;
+
+        /** Times each kept song features its word */
+        private final int[][] counts;
+
+        /** Occurrences of each word in the song being added, reused between songs */
+        private final int[] occurrences;
+
+        /** Words found in the song being added, reused between songs */
+        private final int[] found;
+
+        private TopSongs(int wordCount, int songsPerWord) {
+            this.songsPerWord = songsPerWord;
+            this.songs = new String[wordCount][songsPerWord];
+            this.counts = new int[wordCount][songsPerWord];
+            this.occurrences = new int[wordCount];
+            this.found = new int[wordCount];
+        }
+
+        /**
+         * Count the corpus words in a song's lyrics and keep the song for
+         * every word it features more than the songs kept so far
+         * @param line the song, as artist, title and lyrics separated by tabs
+         * @param wordIds id of each corpus word
+         */
+        private void addSong(String line, HashMap<String, Integer> wordIds) {
+            String[] fields = line.split("\t", 3);
+            if (fields.length < 3) {
+                return;
+            }
+            String song = fields[0].strip() + SongLinks.SEPARATOR + fields[1].strip();
+            String lyrics = fields[2];
+
+            int foundCount = 0;
+            int start = -1;
+            for (int i = 0; i <= lyrics.length(); i++) {
+                boolean inWord = i < lyrics.length()
+                        && (Character.isLetter(lyrics.charAt(i)) || lyrics.charAt(i) == '\'');
+                if (inWord && start < 0) {
+                    start = i;
+                }
+                else if (!inWord && start >= 0) {
+                    Integer id = wordIds.get(lyrics.substring(start, i).toLowerCase(Locale.ROOT));
+                    if (id != null && this.occurrences[id]++ == 0) {
+                        this.found[foundCount++] = id;
+                    }
+                    start = -1;
+                }
+            }
+
+            for (int i = 0; i < foundCount; i++) {
+                int id = this.found[i];
+                this.offer(id, song, this.occurrences[id]);
+                this.occurrences[id] = 0;
+            }
+        }
+
+        /**
+         * Keep a song for a word if it is among the best so far
+         * @param id id of the word
+         * @param song the song
+         * @param count times the song features the word
+         */
+        private void offer(int id, String song, int count) {
+            String[] kept = this.songs[id];
+            int[] keptCounts = this.counts[id];
+            for (String keptSong : kept) {
+                if (song.equals(keptSong)) {
+                    return;
+                }
+            }
+            int position = this.songsPerWord;
+            // more occurrences first, then alphabetical so the result doesn't depend on threads
+            while (position > 0 && (kept[position - 1] == null || count > keptCounts[position - 1]
+                    || (count == keptCounts[position - 1] && song.compareTo(kept[position - 1]) < 0))) {
+                position -= 1;
+            }
+            if (position == this.songsPerWord) {
+                return;
+            }
+            System.arraycopy(kept, position, kept, position + 1, this.songsPerWord - position - 1);
+            System.arraycopy(keptCounts, position, keptCounts, position + 1, this.songsPerWord - position - 1);
+            kept[position] = song;
+            keptCounts[position] = count;
+        }
+
+        /**
+         * Add the songs kept by another part of the dataset
+         * @param other songs kept for the other part
+         */
+        private void merge(TopSongs other) {
+            for (int id = 0; id < this.songs.length; id++) {
+                for (int i = 0; i < this.songsPerWord && other.songs[id][i] != null; i++) {
+                    this.offer(id, other.songs[id][i], other.counts[id][i]);
+                }
+            }
+        }
+
+        /**
+         * Get the songs kept for a word
+         * @param id id of the word
+         * @return the songs, best first
+         */
+        private List<String> songsFor(int id) {
+            List<String> kept = new ArrayList<>();
+            for (String song : this.songs[id]) {
+                if (song != null) {
+                    kept.add(song);
+                }
+            }
+            return Collections.unmodifiableList(kept);
+        }
+    }
+
+    /**
+     * Build the suggestions file for the game's words file.
+     * @param args the lyrics dataset, then optionally the output file and
+     *             the number of songs kept per word
+     * @throws IOException if the dataset cannot be read or the file written
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: java model.SongSuggestions lyrics.tsv " +
+                               "[output (data/suggestions.idx)] [songs per word (3)]");
+            System.exit(1);
+        }
+        Path output = Path.of(args.length > 1 ? args[1] : "data/suggestions.idx");
+        int songsPerWord = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_SONGS_PER_WORD;
+        build(Path.of(args[0]), SongAssociationModel.generateWords(), songsPerWord, output);
+    }
+}
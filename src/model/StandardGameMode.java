@@ -0,0 +1,49 @@
+package model;
+
+/**
+ * A game mode with a fixed time per round and either a fixed number of
+ * rounds or no limit at all.
+ *
+ * @author Uzo Ukekwe
+ */
+class StandardGameMode implements GameMode {
+    /** Name shown to the user */
+    private final String name;
+
+    /** Number of rounds per game (0 for no limit) */
+    private final int roundsPerGame;
+
+    /** Seconds given to answer each round */
+    private final int timePerWord;
+
+    /**
+     * Construct a StandardGameMode.
+     * @param name name shown to the user
+     * @param roundsPerGame number of rounds per game (0 for no limit)
+     * @param timePerWord seconds given to answer each round
+     */
+    StandardGameMode(String name, int roundsPerGame, int timePerWord) {
+        if (roundsPerGame < 0 || timePerWord < 1) {
+            throw new IllegalArgumentException("Invalid game mode: " + roundsPerGame +
+                                               " rounds of " + timePerWord + " s");
+        }
+        this.name = name;
+        this.roundsPerGame = roundsPerGame;
+        this.timePerWord = timePerWord;
+    }
+
+    @Override
+    public String getName() {
+        return this.name;
+    }
+
+    @Override
+    public int getRoundsPerGame() {
+        return this.roundsPerGame;
+    }
+
+    @Override
+    public int getTimePerWord() {
+        return this.timePerWord;
+    }
+}
@@ -0,0 +1,94 @@
+package model;
+
+import java.util.Comparator;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.stream.IntStream;
+
+/**
+ * Running results of every entrant in a tournament. Results are recorded
+ * from many threads as matches finish, so the standings can be read while
+ * the tournament is still going.
+ *
+ * @author Uzo Ukekwe
+ */
+public class Standings {
+    /** Matches won by each entrant */
+    private final AtomicIntegerArray wins;
+
+    /** Matches lost by each entrant, forfeits included */
+    private final AtomicIntegerArray losses;
+
+    /** Matches each entrant forfeited by running out of time */
+    private final AtomicIntegerArray forfeits;
+
+    /** Points scored by each entrant over all of their games */
+    private final AtomicLongArray points;
+
+    /**
+     * Construct empty standings.
+     * @param entrants number of entrants, with ids from 0 up to this number
+     */
+    Standings(int entrants) {
+        this.wins = new AtomicIntegerArray(entrants);
+        this.losses = new AtomicIntegerArray(entrants);
+        this.forfeits = new AtomicIntegerArray(entrants);
+        this.points = new AtomicLongArray(entrants);
+    }
+
+    /**
+     * Record the result of one entrant's game in a match
+     * @param entrant id of the entrant
+     * @param won true if the entrant won the match
+     * @param forfeited true if the entrant ran out of time
+     * @param score points the entrant scored
+     */
+    void record(int entrant, boolean won, boolean forfeited, int score) {
+        if (won) {
+            this.wins.incrementAndGet(entrant);
+        }
+        else {
+            this.losses.incrementAndGet(entrant);
+        }
+        if (forfeited) {
+            this.forfeits.incrementAndGet(entrant);
+        }
+        this.points.addAndGet(entrant, score);
+    }
+
+    public int getEntrants() {
+        return this.wins.length();
+    }
+
+    public int getWins(int entrant) {
+        return this.wins.get(entrant);
+    }
+
+    public int getLosses(int entrant) {
+        return this.losses.get(entrant);
+    }
+
+    public int getForfeits(int entrant) {
+        return this.forfeits.get(entrant);
+    }
+
+    public long getPoints(int entrant) {
+        return this.points.get(entrant);
+    }
+
+    /**
+     * Rank the entrants by wins, then points, then id
+     * @param count how many of the top entrants to return
+     * @return ids of the top entrants, best first
+     */
+    public int[] top(int count) {
+        Comparator<Integer> ranking = Comparator.<Integer>comparingInt(this.wins::get).reversed()
+                .thenComparing(Comparator.<Integer>comparingLong(this.points::get).reversed())
+                .thenComparingInt(entrant -> entrant);
+        return IntStream.range(0, getEntrants()).boxed()
+                        .sorted(ranking)
+                        .limit(count)
+                        .mapToInt(Integer::intValue)
+                        .toArray();
+    }
+}
@@ -0,0 +1,437 @@
+package model;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+
+/**
+ * Runs a tournament between many players. Every match is two games, one
+ * per player, each on its own SongAssociationModel and with the same
+ * words, and the player who scores more wins (the faster one on a tie).
+ *
+ * Matches run on a fixed pool of threads. Each round of the tournament
+ * is a scope: all of its matches are started together and the round only
+ * ends once every one of them has finished or been cancelled, so no
+ * match outlives its round. A player who takes longer than the deadline
+ * over their game is interrupted and forfeits the match. Results go into
+ * the standings as each match finishes.
+ *
+ * Players are created on demand from their entrant id, so only the
+ * players in matches being played are in memory at any time.
+ *
+ * @author Uzo Ukekwe
+ */
+public class Tournament implements AutoCloseable {
+    /** Ways the entrants can be paired up */
+    public enum Format {
+        /** Winners advance until one is left; the top seeds get a bye if the field isn't a power of two */
+        SINGLE_ELIMINATION,
+        /** Every entrant plays every other entrant once (about n * n / 2 matches) */
+        ROUND_ROBIN
+    }
+
+    /** Marks an empty spot in a round's pairings */
+    private final static int BYE = -1;
+
+    /** Number of entrants, with ids from 0 up to this number */
+    private final int entrants;
+
+    /** Creates the player for an entrant id */
+    private final IntFunction<TournamentPlayer> players;
+
+    /** Rules of every game played */
+    private final GameMode mode;
+
+    /** Longest a player may take over their game before they forfeit */
+    private final Duration gameDeadline;
+
+    /** Words the games of each match are drawn from, with their near-duplicate clusters */
+    private final WordClusters corpus;
+
+    /** Ids of the words the games of each match are drawn from */
+    private final int[] deck;
+
+    /** Threads matches are played on */
+    private final ExecutorService matchPool;
+
+    /** Thread which interrupts players who run past their deadline */
+    private final ScheduledExecutorService watchdog;
+
+    /** Results of every match played so far */
+    private final Standings standings;
+
+    /** Picks where in the deck each match's words start */
+    private final Random random;
+
+    /**
+     * Construct a Tournament.
+     * @param entrants number of entrants
+     * @param players creates the player for an entrant id
+     * @param mode rules of every game (must have a fixed number of rounds)
+     * @param gameDeadline longest a player may take over their game
+     * @param parallelism number of matches played at once
+     */
+    public Tournament(int entrants, IntFunction<TournamentPlayer> players, GameMode mode,
+                      Duration gameDeadline, int parallelism) {
+        if (mode.getRoundsPerGame() == 0) {
+            throw new IllegalArgumentException("Tournament games need a fixed number of rounds");
+        }
+        this.entrants = entrants;
+        this.players = players;
+        this.mode = mode;
+        this.gameDeadline = gameDeadline;
+        ArrayList<String> words = SongAssociationModel.generateWords();
+        this.corpus = WordClusters.analyze(words);
+        this.deck = words.stream().mapToInt(this.corpus::idOf).toArray();
+        this.matchPool = Executors.newFixedThreadPool(parallelism, daemonThreads("match-"));
+        this.watchdog = Executors.newSingleThreadScheduledExecutor(daemonThreads("match-deadline-"));
+        this.standings = new Standings(entrants);
+        this.random = new Random();
+    }
+
+    /**
+     * Create a factory for named daemon threads
+     * @param prefix start of each thread's name
+     * @return the factory
+     */
+    private static ThreadFactory daemonThreads(String prefix) {
+        AtomicInteger count = new AtomicInteger();
+        return task -> {
+            Thread thread = new Thread(task, prefix + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Play the whole tournament.
+     * @param format how entrants are paired up
+     * @return the final standings
+     * @throws InterruptedException if interrupted while waiting on a round
+     */
+    public Standings run(Format format) throws InterruptedException {
+        if (format == Format.SINGLE_ELIMINATION) {
+            this.runElimination();
+        }
+        else {
+            this.runRoundRobin();
+        }
+        return this.standings;
+    }
+
+    /**
+     * Play knockout rounds until at most one entrant is left. Entrants are
+     * seeded by id and the bracket is padded with byes up to a power of
+     * two, so byes only come in the first round, each to a different top
+     * seed, and every later round pairs up evenly.
+     * @throws InterruptedException if interrupted while waiting on a round
+     */
+    private void runElimination() throws InterruptedException {
+        int[] remaining = seedBracket(this.entrants);
+        while (remaining.length > 1) {
+            remaining = this.playRound(remaining);
+        }
+    }
+
+    /**
+     * Lay out a standard seeded bracket, in which seed s first meets seed
+     * size + 1 - s and the top two seeds can only meet in the final
+     * @param entrants number of entrants, seeded in order of id
+     * @return the first round's pairings, with BYE for the missing seeds
+     */
+    static int[] seedBracket(int entrants) {
+        int size = 1;
+        while (size < entrants) {
+            size *= 2;
+        }
+        // each doubling pairs every seed with the seed it would meet first
+        int[] seeds = {1};
+        while (seeds.length < size) {
+            int[] doubled = new int[seeds.length * 2];
+            for (int i = 0; i < seeds.length; i++) {
+                doubled[2 * i] = seeds[i];
+                doubled[2 * i + 1] = doubled.length + 1 - seeds[i];
+            }
+            seeds = doubled;
+        }
+        int[] bracket = new int[entrants == 0 ? 0 : size];
+        for (int i = 0; i < bracket.length; i++) {
+            bracket[i] = seeds[i] <= entrants ? seeds[i] - 1 : BYE;
+        }
+        return bracket;
+    }
+
+    /**
+     * Play every entrant against every other, one round at a time, using
+     * the circle method: the first entrant stays put while the rest rotate.
+     * @throws InterruptedException if interrupted while waiting on a round
+     */
+    private void runRoundRobin() throws InterruptedException {
+        int size = this.entrants % 2 == 0 ? this.entrants : this.entrants + 1;
+        int[] circle = new int[size];
+        Arrays.setAll(circle, entrant -> entrant < this.entrants ? entrant : BYE);
+        int[] pairings = new int[size];
+        for (int round = 0; round < size - 1; round++) {
+            for (int i = 0; i < size / 2; i++) {
+                pairings[2 * i] = circle[i];
+                pairings[2 * i + 1] = circle[size - 1 - i];
+            }
+            this.playRound(pairings);
+            // rotate everyone but the first entrant by one place
+            int last = circle[size - 1];
+            System.arraycopy(circle, 1, circle, 2, size - 2);
+            circle[1] = last;
+        }
+    }
+
+    /**
+     * Play one round of matches and wait until all of them are over.
+     * @param pairings entrants in pairs, each pair playing one match
+     * @return winner of each match in order (entrants with a bye advance too),
+     *         with BYE where nobody won so an elimination bracket keeps its shape
+     * @throws InterruptedException if interrupted while waiting on the round
+     */
+    private int[] playRound(int[] pairings) throws InterruptedException {
+        List<Match> matches = new ArrayList<>(pairings.length / 2);
+        List<Future<?>> scope = new ArrayList<>(pairings.length / 2);
+        int[] winners = new int[pairings.length / 2];
+        try {
+            for (int i = 0; i + 1 < pairings.length; i += 2) {
+                Match match = new Match(pairings[i], pairings[i + 1], this.drawWords());
+                matches.add(match);
+                scope.add(this.matchPool.submit(() -> {
+                    this.play(match);
+                    return null;
+                }));
+            }
+            for (int i = 0; i < matches.size(); i++) {
+                winners[i] = this.settle(matches.get(i), scope.get(i));
+            }
+        } finally {
+            // leaving the round early must not leave matches running
+            for (Future<?> match : scope) {
+                match.cancel(true);
+            }
+        }
+        return winners;
+    }
+
+    /**
+     * Pick the words both games of a match are played with
+     * @return ids of as many words as there are rounds in a game
+     */
+    private int[] drawWords() {
+        int start;
+        synchronized (this.random) {
+            start = this.random.nextInt(this.deck.length);
+        }
+        int[] words = new int[this.mode.getRoundsPerGame()];
+        for (int i = 0; i < words.length; i++) {
+            words[i] = this.deck[(start + i) % this.deck.length];
+        }
+        return words;
+    }
+
+    /**
+     * Play both games of a match on the current thread and record the
+     * result as soon as it is known.
+     * @param match the match
+     * @throws InterruptedException if the match was cancelled
+     */
+    private void play(Match match) throws InterruptedException {
+        // a bye is not a match, the entrant just advances
+        if (match.first == BYE || match.second == BYE) {
+            match.winner = match.first == BYE ? match.second : match.first;
+            return;
+        }
+
+        boolean firstFinished = this.playWithDeadline(match.first, match.words, match.firstResult);
+        boolean secondFinished = this.playWithDeadline(match.second, match.words, match.secondResult);
+
+        if (firstFinished && secondFinished) {
+            // more points wins, then less time, then playing first
+            boolean secondBetter = match.secondResult[0] > match.firstResult[0]
+                    || (match.secondResult[0] == match.firstResult[0]
+                        && match.secondResult[1] < match.firstResult[1]);
+            match.winner = secondBetter ? match.second : match.first;
+        }
+        else if (firstFinished) {
+            match.winner = match.first;
+        }
+        else if (secondFinished) {
+            match.winner = match.second;
+        }
+
+        this.recordResult(match.first, match.winner, firstFinished, match.firstResult[0]);
+        this.recordResult(match.second, match.winner, secondFinished, match.secondResult[0]);
+    }
+
+    /**
+     * Play one player's game, interrupting them if they take too long
+     * @param entrant id of the player
+     * @param words ids of the words drawn in the game, in order
+     * @param result where the player's score and total answer time are put
+     * @return true if the player finished before the deadline
+     * @throws InterruptedException if the match was cancelled
+     */
+    private boolean playWithDeadline(int entrant, int[] words, int[] result)
+            throws InterruptedException {
+        Thread thread = Thread.currentThread();
+        boolean[] expired = new boolean[1];
+        ScheduledFuture<?> deadline = this.watchdog.schedule(() -> {
+            synchronized (expired) {
+                expired[0] = true;
+                thread.interrupt();
+            }
+        }, this.gameDeadline.toNanos(), TimeUnit.NANOSECONDS);
+
+        try {
+            this.playGame(entrant, words, result);
+            return true;
+        } catch (InterruptedException ie) {
+            synchronized (expired) {
+                if (!expired[0]) {
+                    throw ie;
+                }
+            }
+            return false;
+        } finally {
+            deadline.cancel(false);
+            synchronized (expired) {
+                // the deadline may have fired just as the game ended
+                if (expired[0]) {
+                    Thread.interrupted();
+                }
+            }
+        }
+    }
+
+    /**
+     * Play one player's game of a match
+     * @param entrant id of the player
+     * @param words ids of the words drawn in the game, in order
+     * @param result where the player's score and total answer time are put
+     * @throws InterruptedException if the player was interrupted
+     */
+    private void playGame(int entrant, int[] words, int[] result)
+            throws InterruptedException {
+        TournamentPlayer player = this.players.apply(entrant);
+        SongAssociationModel model = new SongAssociationModel(this.corpus, words, 0, new int[0]);
+        model.setMode(this.mode);
+        String[] currentWord = new String[1];
+        model.addObserver((subject, data) -> {
+            if (data != null) {
+                currentWord[0] = String.valueOf(data).substring(5);
+            }
+        });
+
+        long timeLimit = TimeUnit.SECONDS.toNanos(this.mode.getTimePerWord());
+        while (!model.isGameOver()) {
+            model.startRound();
+            long start = System.nanoTime();
+            String song = player.answer(currentWord[0]);
+            long elapsed = System.nanoTime() - start;
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            // answers given after the time per word don't count
+            if (elapsed > timeLimit) {
+                model.endRound(null, this.mode.getTimePerWord());
+            }
+            else {
+                model.endRound(song, (int) TimeUnit.NANOSECONDS.toSeconds(elapsed));
+            }
+        }
+        result[0] = model.getCurrentScore();
+        result[1] = model.getTotalAnswerTime();
+    }
+
+    /**
+     * Wait for a match to end
+     * @param match the match
+     * @param future the task playing the match
+     * @return the winner, or BYE if nobody won
+     * @throws InterruptedException if interrupted while waiting
+     */
+    private int settle(Match match, Future<?> future) throws InterruptedException {
+        try {
+            future.get();
+        } catch (ExecutionException | CancellationException e) {
+            // a player failed; nobody wins the match
+            System.err.println("Match " + match.first + " v " + match.second + " failed: " + e);
+            return BYE;
+        }
+        return match.winner;
+    }
+
+    /**
+     * Record one entrant's part in a match
+     * @param entrant id of the entrant
+     * @param winner winner of the match
+     * @param finished false if the entrant ran out of time
+     * @param score points the entrant scored
+     */
+    private void recordResult(int entrant, int winner, boolean finished, int score) {
+        this.standings.record(entrant, entrant == winner, !finished, finished ? score : 0);
+    }
+
+    /**
+     * Get the results of the matches played so far
+     * @return the standings
+     */
+    public Standings getStandings() {
+        return this.standings;
+    }
+
+    /**
+     * Stop the threads matches are played on.
+     */
+    @Override
+    public void close() {
+        this.matchPool.shutdownNow();
+        this.watchdog.shutdownNow();
+    }
+
+    /**
+     * Two entrants playing each other, and how far they got.
+     */
+    private static class Match {
+        /** Id of the entrant who plays first (or BYE) */
+        private final int first;
+
+        /** Id of the entrant who plays second (or BYE) */
+        private final int second;
+
+        /** Ids of the words both games are played with */
+        private final int[] words;
+
+        /** Score and total answer time of each entrant's game */
+        private final int[] firstResult;
+        private final int[] secondResult;
+
+        /** Winner of the match (BYE until decided, or if nobody won) */
+        private volatile int winner;
+
+        private Match(int first, int second, int[] words) {
+            this.first = first;
+            this.second = second;
+            this.words = words;
+            this.firstResult = new int[2];
+            this.secondResult = new int[2];
+            this.winner = BYE;
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package model;
+
+/**
+ * A player taking part in a tournament, e.g. a simulated player or a
+ * connection to a remote one.
+ *
+ * @author Uzo Ukekwe
+ */
+public interface TournamentPlayer {
+    /**
+     * Think of a song featuring a word. Players that take too long are
+     * interrupted, so implementations which block should give up when
+     * interrupted.
+     * @param word word which must be found in the song's lyrics
+     * @return the song, as "artist - title", or null if the player has none
+     * @throws InterruptedException if the player's match was cancelled
+     */
+    String answer(String word) throws InterruptedException;
+}
@@ -0,0 +1,442 @@
+package model;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Groups the words of a corpus into clusters of near-duplicates, such as
+ * "bird" and "birds" or "breath" and "breathe", so that they can be kept
+ * apart during a game.
+ *
+ * Each distinct word gets an id, in order of first appearance in the
+ * corpus, and the cluster of every word is kept in an array indexed by
+ * that id, so games can draw word ids and look their clusters up without
+ * hashing or boxing.
+ *
+ * Words are clustered in two ways: words with the same stem always share
+ * a cluster, and words whose character trigrams are similar enough are
+ * joined too. Similarity is estimated with MinHash signatures, and only
+ * pairs that share a locality-sensitive hash bucket are compared, so the
+ * analysis stays close to linear in the number of words. Signatures are
+ * computed and buckets sorted in parallel.
+ *
+ * @author Uzo Ukekwe
+ */
+public class WordClusters {
+    /** Number of hash functions in each MinHash signature */
+    private final static int SIGNATURE_SIZE = 32;
+
+    /** Number of signature values hashed together into one LSH bucket */
+    private final static int ROWS_PER_BAND = 4;
+
+    /** Number of LSH bands per signature */
+    private final static int BANDS = SIGNATURE_SIZE / ROWS_PER_BAND;
+
+    /** Estimated trigram similarity at which two words are clustered */
+    private final static double SIMILARITY_THRESHOLD = 0.6;
+
+    /** Each distinct word, by word id */
+    private final String[] words;
+
+    /** Cluster id of each word, by word id */
+    private final int[] clusterIds;
+
+    /** Id of the first word of each cluster, by cluster id */
+    private final int[] firstWords;
+
+    /** Id of each word in the corpus */
+    private final HashMap<String, Integer> wordIds;
+
+    /** Number of distinct clusters */
+    private final int clusterCount;
+
+    /**
+     * Construct WordClusters from a finished analysis; see analyze.
+     */
+    private WordClusters(String[] words, int[] clusterIds, int[] firstWords,
+                         HashMap<String, Integer> wordIds, int clusterCount) {
+        this.words = words;
+        this.clusterIds = clusterIds;
+        this.firstWords = firstWords;
+        this.wordIds = wordIds;
+        this.clusterCount = clusterCount;
+    }
+
+    /**
+     * Cluster the words of a corpus.
+     * @param corpus the words, in any order (duplicates are allowed)
+     * @return the clusters
+     */
+    public static WordClusters analyze(List<String> corpus) {
+        HashMap<String, Integer> wordIds = new HashMap<>();
+        for (String word : corpus) {
+            wordIds.putIfAbsent(word, wordIds.size());
+        }
+        String[] words = new String[wordIds.size()];
+        wordIds.forEach((word, id) -> words[id] = word);
+        int n = words.length;
+
+        String[] stems = new String[n];
+        IntStream.range(0, n).parallel().forEach(id -> stems[id] = stem(words[id]));
+
+        int[] parent = new int[n];
+        for (int id = 0; id < n; id++) {
+            parent[id] = id;
+        }
+
+        // words sharing a stem
+        HashMap<String, Integer> firstWithStem = new HashMap<>();
+        for (int id = 0; id < n; id++) {
+            Integer other = firstWithStem.putIfAbsent(stems[id], id);
+            if (other != null) {
+                union(parent, id, other);
+            }
+        }
+
+        // words with similar trigrams, compared only within an LSH bucket
+        int[] signatures = new int[n * SIGNATURE_SIZE];
+        IntStream.range(0, n).parallel().forEach(id -> sign(stems[id], signatures, id));
+        long[] buckets = new long[n];
+        for (int band = 0; band < BANDS; band++) {
+            int b = band;
+            IntStream.range(0, n).parallel().forEach(id ->
+                    buckets[id] = ((long) bandHash(signatures, id, b) << 32) | id);
+            Arrays.parallelSort(buckets);
+            int first = 0;
+            for (int i = 1; i < n; i++) {
+                if ((buckets[i] >>> 32) != (buckets[first] >>> 32)) {
+                    first = i;
+                    continue;
+                }
+                int id = (int) buckets[i];
+                int other = (int) buckets[first];
+                if (similarity(signatures, id, other) >= SIMILARITY_THRESHOLD) {
+                    union(parent, id, other);
+                }
+            }
+        }
+
+        // number the clusters
+        int[] clusterIds = new int[n];
+        int[] clusterOfRoot = new int[n];
+        int[] firstWords = new int[n];
+        Arrays.fill(clusterOfRoot, -1);
+        int clusterCount = 0;
+        for (int id = 0; id < n; id++) {
+            int root = find(parent, id);
+            if (clusterOfRoot[root] < 0) {
+                firstWords[clusterCount] = id;
+                clusterOfRoot[root] = clusterCount++;
+            }
+            clusterIds[id] = clusterOfRoot[root];
+        }
+        return new WordClusters(words, clusterIds, Arrays.copyOf(firstWords, clusterCount),
+                                wordIds, clusterCount);
+    }
+
+    /**
+     * Reduce a word to a rough stem by stripping common English suffixes
+     * @param word the word
+     * @return the stem, in lower case
+     */
+    static String stem(String word) {
+        StringBuilder stem = new StringBuilder(word.strip());
+        for (int i = 0; i < stem.length(); i++) {
+            stem.setCharAt(i, Character.toLowerCase(stem.charAt(i)));
+        }
+        stripSuffix(stem, "'s", 3, "");
+        if (!stripSuffix(stem, "sses", 5, "ss")
+                && !stripSuffix(stem, "ies", 5, "y")
+                && !endsWith(stem, "ss")) {
+            stripSuffix(stem, "s", 4, "");
+        }
+        stripInflection(stem);
+        // a final "e" goes only where the rest reads as a stem on its own, so
+        // "dance" meets "danc(ed)" while "care", "hope" and "plane" keep theirs
+        int end = stem.length() - 1;
+        if (endsWith(stem, "e")
+                && (measure(stem, end) > 1 || (measure(stem, end) == 1 && !endsCvc(stem, end)))) {
+            stem.setLength(end);
+        }
+        return stem.toString();
+    }
+
+    /**
+     * Undo an "ed" or "ing" ending and put the stem back in the form its
+     * base word has: "loved" and "hoping" become "love" and "hope", while
+     * "running" and "stopped" lose their doubled consonant. Endings that
+     * aren't inflections, as in "speed" or "sing", are left alone.
+     * @param stem the stem so far
+     */
+    private static void stripInflection(StringBuilder stem) {
+        if (endsWith(stem, "eed")) {
+            if (measure(stem, stem.length() - 3) > 0) {
+                stem.setLength(stem.length() - 1);
+            }
+            return;
+        }
+        int suffix = endsWith(stem, "ed") ? 2 : endsWith(stem, "ing") ? 3 : 0;
+        if (suffix == 0 || !hasVowel(stem, stem.length() - suffix)) {
+            return;
+        }
+        stem.setLength(stem.length() - suffix);
+        int length = stem.length();
+        // "cried" goes back to "cry", like "cries" does
+        if (suffix == 2 && length > 2 && stem.charAt(length - 1) == 'i'
+                && isConsonant(stem, length - 2)) {
+            stem.setCharAt(length - 1, 'y');
+        }
+        else if (endsWith(stem, "at") || endsWith(stem, "bl") || endsWith(stem, "iz")) {
+            stem.append('e');
+        }
+        else if (length >= 2 && stem.charAt(length - 1) == stem.charAt(length - 2)
+                && isConsonant(stem, length - 1) && "lsz".indexOf(stem.charAt(length - 1)) < 0) {
+            stem.setLength(length - 1);
+        }
+        else if (measure(stem, length) == 1 && endsCvc(stem, length)) {
+            stem.append('e');
+        }
+    }
+
+    /**
+     * Check whether a letter of a word is a consonant; "y" counts as one
+     * only when it doesn't follow a consonant, as in "yes" but not "cry"
+     * @param word the word
+     * @param i index of the letter
+     * @return true if the letter is a consonant
+     */
+    private static boolean isConsonant(CharSequence word, int i) {
+        char c = word.charAt(i);
+        if ("aeiou".indexOf(c) >= 0) {
+            return false;
+        }
+        return c != 'y' || i == 0 || !isConsonant(word, i - 1);
+    }
+
+    /**
+     * Check whether the start of a word has a vowel
+     * @param word the word
+     * @param end number of letters to look at
+     * @return true if one of them is a vowel
+     */
+    private static boolean hasVowel(CharSequence word, int end) {
+        for (int i = 0; i < end; i++) {
+            if (!isConsonant(word, i)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Count the vowel-consonant sequences at the start of a word, which is
+     * roughly its number of syllables after the first
+     * @param word the word
+     * @param end number of letters to look at
+     * @return the number of vowels followed by a consonant, runs counting once
+     */
+    private static int measure(CharSequence word, int end) {
+        int count = 0;
+        for (int i = 1; i < end; i++) {
+            if (isConsonant(word, i) && !isConsonant(word, i - 1)) {
+                count += 1;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Check whether the start of a word ends with a consonant, a vowel and
+     * a consonant other than w, x or y, as in "hop" or "lov"
+     * @param word the word
+     * @param end number of letters to look at
+     * @return true if those letters end that way
+     */
+    private static boolean endsCvc(CharSequence word, int end) {
+        return end >= 3 && isConsonant(word, end - 3) && !isConsonant(word, end - 2)
+                && isConsonant(word, end - 1) && "wxy".indexOf(word.charAt(end - 1)) < 0;
+    }
+
+    /**
+     * Check whether a stem ends with a suffix
+     * @param stem the stem so far
+     * @param suffix the suffix
+     * @return true if the stem ends with the suffix
+     */
+    private static boolean endsWith(StringBuilder stem, String suffix) {
+        int start = stem.length() - suffix.length();
+        return start >= 0 && stem.indexOf(suffix, start) == start;
+    }
+
+    /**
+     * Replace a suffix if the stem is long enough
+     * @param stem the stem so far
+     * @param suffix the suffix to remove
+     * @param minLength shortest stem, suffix included, the rule applies to
+     * @param replacement what to put in place of the suffix
+     * @return true if the suffix was replaced
+     */
+    private static boolean stripSuffix(StringBuilder stem, String suffix,
+                                       int minLength, String replacement) {
+        if (stem.length() < minLength || !endsWith(stem, suffix)) {
+            return false;
+        }
+        stem.setLength(stem.length() - suffix.length());
+        stem.append(replacement);
+        return true;
+    }
+
+    /**
+     * Compute the MinHash signature of a stem's trigrams, with the stem
+     * padded so its first and last characters count as much as the rest
+     * @param stem the stem
+     * @param signatures where every signature is stored
+     * @param id id of the word the stem belongs to
+     */
+    private static void sign(String stem, int[] signatures, int id) {
+        int offset = id * SIGNATURE_SIZE;
+        Arrays.fill(signatures, offset, offset + SIGNATURE_SIZE, Integer.MAX_VALUE);
+        String padded = "^" + stem + "$";
+        for (int i = 0; i + 3 <= padded.length(); i++) {
+            long trigram = ((long) padded.charAt(i) << 32) | ((long) padded.charAt(i + 1) << 16)
+                           | padded.charAt(i + 2);
+            for (int h = 0; h < SIGNATURE_SIZE; h++) {
+                int value = (int) (mix(trigram + 0x9E3779B97F4A7C15L * (h + 1)) >>> 33);
+                if (value < signatures[offset + h]) {
+                    signatures[offset + h] = value;
+                }
+            }
+        }
+    }
+
+    /**
+     * Hash the values of one band of a signature together
+     * @param signatures where every signature is stored
+     * @param id id of the word
+     * @param band index of the band
+     * @return the hash of the band
+     */
+    private static int bandHash(int[] signatures, int id, int band) {
+        long hash = band;
+        int offset = id * SIGNATURE_SIZE + band * ROWS_PER_BAND;
+        for (int row = 0; row < ROWS_PER_BAND; row++) {
+            hash = mix(hash * 31 + signatures[offset + row]);
+        }
+        return (int) hash;
+    }
+
+    /**
+     * Estimate the trigram similarity of two words from their signatures
+     * @param signatures where every signature is stored
+     * @param id id of one word
+     * @param other id of the other word
+     * @return the fraction of signature values the words share
+     */
+    private static double similarity(int[] signatures, int id, int other) {
+        int same = 0;
+        for (int h = 0; h < SIGNATURE_SIZE; h++) {
+            if (signatures[id * SIGNATURE_SIZE + h] == signatures[other * SIGNATURE_SIZE + h]) {
+                same += 1;
+            }
+        }
+        return (double) same / SIGNATURE_SIZE;
+    }
+
+    /**
+     * Scramble the bits of a value (the finalizer of MurmurHash3)
+     * @param value the value
+     * @return the scrambled value
+     */
+    private static long mix(long value) {
+        value ^= value >>> 33;
+        value *= 0xff51afd7ed558ccdL;
+        value ^= value >>> 33;
+        value *= 0xc4ceb9fe1a85ec53L;
+        value ^= value >>> 33;
+        return value;
+    }
+
+    /**
+     * Find the root of a word's set
+     * @param parent parent of each word in the union-find forest
+     * @param id id of the word
+     * @return id of the root
+     */
+    private static int find(int[] parent, int id) {
+        while (parent[id] != id) {
+            parent[id] = parent[parent[id]];
+            id = parent[id];
+        }
+        return id;
+    }
+
+    /**
+     * Join the sets of two words
+     * @param parent parent of each word in the union-find forest
+     * @param id id of one word
+     * @param other id of the other word
+     */
+    private static void union(int[] parent, int id, int other) {
+        int root = find(parent, id);
+        int otherRoot = find(parent, other);
+        if (root != otherRoot) {
+            parent[Math.max(root, otherRoot)] = Math.min(root, otherRoot);
+        }
+    }
+
+    /**
+     * Get the id of a word
+     * @param word the word
+     * @return its id, or -1 if the word is not in the corpus
+     */
+    public int idOf(String word) {
+        Integer id = this.wordIds.get(word);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * Get the word with an id
+     * @param id id of the word
+     * @return the word
+     */
+    public String getWord(int id) {
+        return this.words[id];
+    }
+
+    /**
+     * Get the cluster a word belongs to
+     * @param id id of the word
+     * @return id of its cluster
+     */
+    public int clusterOf(int id) {
+        return this.clusterIds[id];
+    }
+
+    /**
+     * Get a word which stands for a cluster, e.g. to save which clusters
+     * have been drawn from
+     * @param cluster id of the cluster
+     * @return id of the cluster's first word
+     */
+    public int firstWordOf(int cluster) {
+        return this.firstWords[cluster];
+    }
+
+    /**
+     * Get the number of distinct words
+     * @return the number of words, which is one more than the highest word id
+     */
+    public int getWordCount() {
+        return this.words.length;
+    }
+
+    /**
+     * Get the number of clusters
+     * @return the number of distinct clusters
+     */
+    public int getClusterCount() {
+        return this.clusterCount;
+    }
+}